@@ -2,18 +2,19 @@ package com.example.oauth2.config;
 
 import com.example.oauth2.filter.RateLimitFilter;
 import com.example.oauth2.filter.RequestResponseLoggingFilter;
-import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.security.CalibratedPasswordEncoder;
+import com.example.oauth2.security.InternedAuthoritiesConverter;
+import com.example.oauth2.security.JweJwtDecoder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
-import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -29,7 +30,7 @@ public class SecurityConfig {
     private RequestResponseLoggingFilter requestResponseLoggingFilter;
 
     @Autowired
-    private JweTokenService jweTokenService;
+    private JweJwtDecoder jweJwtDecoder;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -52,6 +53,7 @@ public class SecurityConfig {
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
+                                .decoder(jweJwtDecoder)
                                 .jwtAuthenticationConverter(jwtAuthenticationConverter())
                         )
                 )
@@ -63,17 +65,18 @@ public class SecurityConfig {
 
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
-        authoritiesConverter.setAuthorityPrefix("SCOPE_");
-        authoritiesConverter.setAuthoritiesClaimName("scopes");
-
+        // ROLE_* from "roles" and SCOPE_* from "scopes", one shared list per combination
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
+        converter.setJwtGrantedAuthoritiesConverter(new InternedAuthoritiesConverter());
         return converter;
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${oauth2.password-hashing.strength:0}") int strength,
+                                           @Value("${oauth2.password-hashing.target-ms:250}") long targetMs,
+                                           @Value("${oauth2.password-hashing.min-strength:10}") int minStrength,
+                                           @Value("${oauth2.password-hashing.max-strength:14}") int maxStrength) {
+        // BCrypt cost calibrated to oauth2.password-hashing.target-ms on this host
+        return new CalibratedPasswordEncoder(strength, targetMs, minStrength, maxStrength);
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.example.oauth2.controller;
 
-import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.security.TokenPrincipal;
+import com.example.oauth2.security.TokenPrincipalResolver;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,7 +21,7 @@ public class ApiController {
     private static final Logger logger = LoggerFactory.getLogger(ApiController.class);
 
     @Autowired
-    private JweTokenService jweTokenService;
+    private TokenPrincipalResolver tokenPrincipalResolver;
 
     @GetMapping("/public/health")
     public ResponseEntity<?> health() {
@@ -32,20 +34,19 @@ public class ApiController {
 
     @GetMapping("/protected/profile")
     @PreAuthorize("hasAuthority('SCOPE_read')")
-    public ResponseEntity<?> getProfile(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getProfile(HttpServletRequest request) {
         try {
-            String token = extractTokenFromHeader(authHeader);
-
-            String username = jweTokenService.extractUsername(token);
-            Long userId = jweTokenService.extractUserId(token);
-            List<String> roles = jweTokenService.extractRoles(token);
-            List<String> scopes = jweTokenService.extractScopes(token);
+            TokenPrincipal principal = tokenPrincipalResolver.resolve(request);
+            if (principal == null) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "invalid_token", "message", "Invalid or expired token"));
+            }
 
             Map<String, Object> profile = new HashMap<>();
-            profile.put("user_id", userId);
-            profile.put("username", username);
-            profile.put("roles", roles);
-            profile.put("scopes", scopes);
+            profile.put("user_id", principal.getUserId());
+            profile.put("username", principal.getUsername());
+            profile.put("roles", principal.getRoles());
+            profile.put("scopes", principal.getScopes());
 
             return ResponseEntity.ok(profile);
 
@@ -90,11 +91,4 @@ public class ApiController {
 
         return ResponseEntity.ok(response);
     }
-
-    private String extractTokenFromHeader(String authHeader) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            return authHeader.substring(7);
-        }
-        throw new IllegalArgumentException("Invalid authorization header");
-    }
 }
\ No newline at end of file
@@ -1,16 +1,26 @@
 package com.example.oauth2.controller;
 
+import com.example.oauth2.dto.BulkTokenRequest;
 import com.example.oauth2.dto.TokenRequest;
 import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.service.ClientRegistry.RegisteredClient;
 import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.ServiceOverloadedException;
+import com.example.oauth2.service.TokenValidationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,9 +30,14 @@ public class OAuth2Controller {
 
     private static final Logger logger = LoggerFactory.getLogger(OAuth2Controller.class);
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private OAuth2TokenService tokenService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/token-jew")
     public ResponseEntity<?> generateToken(@Valid @RequestBody TokenRequest request) {
         try {
@@ -39,6 +54,11 @@ public class OAuth2Controller {
             return ResponseEntity.badRequest()
                     .body(createErrorResponse("invalid_request", e.getMessage()));
 
+        } catch (ServiceOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(createErrorResponse("temporarily_unavailable", e.getMessage()));
+
         } catch (Exception e) {
             logger.error("Error generating token", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -46,18 +66,55 @@ public class OAuth2Controller {
         }
     }
 
+    @PostMapping("/token-jew/bulk")
+    public ResponseEntity<?> generateBulkTokens(@Valid @RequestBody BulkTokenRequest request) {
+        RegisteredClient client;
+        try {
+            client = tokenService.validateBulkRequest(request);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid bulk token request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("invalid_request", e.getMessage()));
+        } catch (ServiceOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(createErrorResponse("temporarily_unavailable", e.getMessage()));
+        }
+
+        logger.info("Bulk token request received for client: {}, count: {}",
+                request.getClient_id(), request.getCount());
+
+        // One TokenResponse per line, flushed chunk by chunk as rows are persisted
+        StreamingResponseBody body = outputStream -> tokenService.issueBulkClientTokens(request, client, responses -> {
+            try {
+                for (TokenResponse response : responses) {
+                    outputStream.write(objectMapper.writeValueAsBytes(response));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(body);
+    }
+
     @PostMapping("/validate")
     public ResponseEntity<?> validateToken(@RequestParam("token") String token) {
         try {
-            boolean isValid = tokenService.validateToken(token);
+            TokenValidationResult result = tokenService.validateToken(token);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("valid", isValid);
+            response.put("valid", result.isValid());
 
-            if (isValid) {
+            if (result.isValid()) {
                 response.put("message", "Token is valid");
             } else {
                 response.put("message", "Token is invalid or expired");
+                response.put("reason", result.getReason().name());
             }
 
             return ResponseEntity.ok(response);
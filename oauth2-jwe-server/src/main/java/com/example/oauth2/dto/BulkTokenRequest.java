@@ -0,0 +1,21 @@
+package com.example.oauth2.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BulkTokenRequest {
+    @NotBlank(message = "Client ID is required")
+    private String client_id;
+
+    @NotBlank(message = "Client secret is required")
+    private String client_secret;
+
+    private String scope;
+
+    @Min(value = 1, message = "Count must be at least 1")
+    private int count;
+}
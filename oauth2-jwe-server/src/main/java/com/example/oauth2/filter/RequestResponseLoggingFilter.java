@@ -1,5 +1,6 @@
 package com.example.oauth2.filter;
 
+import com.example.oauth2.service.RandomIdService;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -9,7 +10,6 @@ import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.UUID;
 
 @Component
 public class RequestResponseLoggingFilter implements Filter {
@@ -17,6 +17,12 @@ public class RequestResponseLoggingFilter implements Filter {
     private static final Logger requestLogger = LoggerFactory.getLogger("REQUEST_RESPONSE_LOGGER");
     private static final Logger logger = LoggerFactory.getLogger(RequestResponseLoggingFilter.class);
 
+    private final RandomIdService randomIdService;
+
+    public RequestResponseLoggingFilter(RandomIdService randomIdService) {
+        this.randomIdService = randomIdService;
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -25,7 +31,7 @@ public class RequestResponseLoggingFilter implements Filter {
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
         // Generate trace ID for request tracking
-        String traceId = UUID.randomUUID().toString().substring(0, 8);
+        String traceId = randomIdService.newTraceId();
         MDC.put("traceId", traceId);
 
         long startTime = System.currentTimeMillis();
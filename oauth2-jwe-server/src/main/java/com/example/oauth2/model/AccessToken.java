@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 public class AccessToken {
     private Long id;
     private String tokenId;
-    private String tokenValue;
+    private byte[] tokenDigest;
     private String refreshToken;
     private Long usuarioId;
     private String clientId;
@@ -26,20 +26,22 @@ public class AccessToken {
     private LocalDateTime expiresAt;
     private LocalDateTime createdAt;
     private Boolean revoked;
+    private Integer tokenEpoch;
 
     // Constructors
 
-    public AccessToken(String tokenId, String tokenValue, String refreshToken,
+    public AccessToken(String tokenId, byte[] tokenDigest, String refreshToken,
                        Long usuarioId, String clientId, String scopes,
                        LocalDateTime expiresAt) {
         this.tokenId = tokenId;
-        this.tokenValue = tokenValue;
+        this.tokenDigest = tokenDigest;
         this.refreshToken = refreshToken;
         this.usuarioId = usuarioId;
         this.clientId = clientId;
         this.scopes = scopes;
         this.expiresAt = expiresAt;
         this.revoked = false;
+        this.tokenEpoch = 0;
     }
 
     // Getters and Setters
@@ -59,12 +61,15 @@ public class AccessToken {
         this.tokenId = tokenId;
     }
 
-    public String getTokenValue() {
-        return tokenValue;
+    /**
+     * SHA-256 of the issued JWE. The token itself is never stored.
+     */
+    public byte[] getTokenDigest() {
+        return tokenDigest;
     }
 
-    public void setTokenValue(String tokenValue) {
-        this.tokenValue = tokenValue;
+    public void setTokenDigest(byte[] tokenDigest) {
+        this.tokenDigest = tokenDigest;
     }
 
     public String getRefreshToken() {
@@ -123,6 +128,14 @@ public class AccessToken {
         this.revoked = revoked;
     }
 
+    public Integer getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public void setTokenEpoch(Integer tokenEpoch) {
+        this.tokenEpoch = tokenEpoch;
+    }
+
     public boolean isExpired() {
         return LocalDateTime.now().isAfter(expiresAt);
     }
@@ -0,0 +1,22 @@
+package com.example.oauth2.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class OAuth2Client {
+    private Long id;
+    private String clientId;
+    private String clientSecret;
+    private String clientName;
+    private String scopes;
+    private String grantTypes;
+    private String redirectUris;
+    private Boolean ativo;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+}
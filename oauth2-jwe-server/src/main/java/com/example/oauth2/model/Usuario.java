@@ -20,6 +20,7 @@ public class Usuario {
     private Boolean ativo;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Integer tokenEpoch;
     private List<Role> roles;
 
 }
\ No newline at end of file
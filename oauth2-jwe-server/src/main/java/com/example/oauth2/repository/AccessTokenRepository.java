@@ -1,16 +1,25 @@
 package com.example.oauth2.repository;
 
 import com.example.oauth2.model.AccessToken;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Repository
 public class AccessTokenRepository {
@@ -18,26 +27,68 @@ public class AccessTokenRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${oauth2.group-commit.enabled:false}")
+    private boolean groupCommitEnabled;
+
+    @Value("${oauth2.group-commit.max-batch-size:256}")
+    private int groupCommitMaxBatchSize;
+
+    @Value("${oauth2.group-commit.max-wait-us:200}")
+    private long groupCommitMaxWaitMicros;
+
+    private GroupCommit<AccessToken> groupCommit;
+    private TransactionTemplate transactionTemplate;
+
+    // Everything but token_digest, which nothing reads back
+    private static final String TOKEN_COLUMNS = """
+        id, token_id, refresh_token, usuario_id, client_id, scopes,
+        expires_at, created_at, revoked, token_epoch""";
+
     private final RowMapper<AccessToken> tokenRowMapper = new RowMapper<AccessToken>() {
         @Override
         public AccessToken mapRow(ResultSet rs, int rowNum) throws SQLException {
             AccessToken token = new AccessToken();
             token.setId(rs.getLong("id"));
             token.setTokenId(rs.getString("token_id"));
-            token.setTokenValue(rs.getString("token_value"));
             token.setRefreshToken(rs.getString("refresh_token"));
-            token.setUsuarioId(rs.getLong("usuario_id"));
+            token.setUsuarioId(rs.getObject("usuario_id", Long.class));
             token.setClientId(rs.getString("client_id"));
             token.setScopes(rs.getString("scopes"));
             token.setExpiresAt(rs.getTimestamp("expires_at").toLocalDateTime());
             token.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
             token.setRevoked(rs.getBoolean("revoked"));
+            token.setTokenEpoch(rs.getInt("token_epoch"));
             return token;
         }
     };
 
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (groupCommitEnabled) {
+            groupCommit = new GroupCommit<>(
+                    tokens -> transactionTemplate.executeWithoutResult(status -> saveAll(tokens)),
+                    token -> saveAll(List.of(token)),
+                    groupCommitMaxBatchSize,
+                    TimeUnit.MICROSECONDS.toNanos(groupCommitMaxWaitMicros));
+        }
+    }
+
+    /**
+     * Inserts or updates {@code token}. With {@code oauth2.group-commit.enabled} new
+     * tokens are inserted together with those of concurrent callers, in one batch and
+     * transaction, and the generated ID is not read back; the call still returns only
+     * once the row is committed.
+     */
     public AccessToken save(AccessToken token) {
         if (token.getId() == null) {
+            if (groupCommit != null) {
+                groupCommit.submit(token);
+                return token;
+            }
             return insert(token);
         } else {
             return update(token);
@@ -46,9 +97,9 @@ public class AccessTokenRepository {
 
     private AccessToken insert(AccessToken token) {
         String sql = """
-            INSERT INTO access_tokens (token_id, token_value, refresh_token, usuario_id, 
-            client_id, scopes, expires_at, created_at, revoked) 
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO access_tokens (token_id, token_digest, refresh_token, usuario_id, 
+            client_id, scopes, expires_at, created_at, revoked, token_epoch) 
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
         LocalDateTime now = LocalDateTime.now();
@@ -56,14 +107,15 @@ public class AccessTokenRepository {
 
         jdbcTemplate.update(sql,
                 token.getTokenId(),
-                token.getTokenValue(),
+                token.getTokenDigest(),
                 token.getRefreshToken(),
                 token.getUsuarioId(),
                 token.getClientId(),
                 token.getScopes(),
                 token.getExpiresAt(),
                 now,
-                token.getRevoked()
+                token.getRevoked(),
+                token.getTokenEpoch() != null ? token.getTokenEpoch() : 0
         );
 
         // Get the generated ID
@@ -73,14 +125,55 @@ public class AccessTokenRepository {
         return token;
     }
 
+    /**
+     * Inserts new tokens with one JDBC batch; with {@code rewriteBatchedStatements}
+     * the MySQL driver sends them as multi-row INSERTs. Generated IDs are not read back.
+     */
+    public void saveAll(List<AccessToken> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            INSERT INTO access_tokens (token_id, token_digest, refresh_token, usuario_id, 
+            client_id, scopes, expires_at, created_at, revoked, token_epoch) 
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+        LocalDateTime now = LocalDateTime.now();
+
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AccessToken token = tokens.get(i);
+                token.setCreatedAt(now);
+                ps.setString(1, token.getTokenId());
+                ps.setBytes(2, token.getTokenDigest());
+                ps.setString(3, token.getRefreshToken());
+                ps.setObject(4, token.getUsuarioId());
+                ps.setString(5, token.getClientId());
+                ps.setString(6, token.getScopes());
+                ps.setTimestamp(7, Timestamp.valueOf(token.getExpiresAt()));
+                ps.setTimestamp(8, Timestamp.valueOf(now));
+                ps.setBoolean(9, token.getRevoked());
+                ps.setInt(10, token.getTokenEpoch() != null ? token.getTokenEpoch() : 0);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return tokens.size();
+            }
+        });
+    }
+
     private AccessToken update(AccessToken token) {
         String sql = """
-            UPDATE access_tokens SET token_value = ?, refresh_token = ?, 
+            UPDATE access_tokens SET token_digest = ?, refresh_token = ?, 
             scopes = ?, expires_at = ?, revoked = ? WHERE id = ?
         """;
 
         jdbcTemplate.update(sql,
-                token.getTokenValue(),
+                token.getTokenDigest(),
                 token.getRefreshToken(),
                 token.getScopes(),
                 token.getExpiresAt(),
@@ -92,44 +185,110 @@ public class AccessTokenRepository {
     }
 
     public Optional<AccessToken> findByTokenId(String tokenId) {
-        String sql = "SELECT * FROM access_tokens WHERE token_id = ? AND revoked = FALSE";
+        String sql = "SELECT " + TOKEN_COLUMNS + " FROM access_tokens WHERE token_id = ? AND revoked = FALSE";
         List<AccessToken> tokens = jdbcTemplate.query(sql, tokenRowMapper, tokenId);
         return tokens.isEmpty() ? Optional.empty() : Optional.of(tokens.get(0));
     }
 
     public Optional<AccessToken> findByRefreshToken(String refreshToken) {
-        String sql = "SELECT * FROM access_tokens WHERE refresh_token = ? AND revoked = FALSE";
+        String sql = "SELECT " + TOKEN_COLUMNS + " FROM access_tokens WHERE refresh_token = ? AND revoked = FALSE";
         List<AccessToken> tokens = jdbcTemplate.query(sql, tokenRowMapper, refreshToken);
         return tokens.isEmpty() ? Optional.empty() : Optional.of(tokens.get(0));
     }
 
+    /**
+     * Atomically retires the live token holding {@code refreshToken} and inserts the
+     * token {@code replacementFactory} mints from it, in one transaction.
+     * <p>
+     * The locking read decides the winner: of concurrent rotations of the same refresh
+     * token one locks the live row, the others wait for its commit and then find the
+     * row revoked and get an empty result. The revoke is a primary key update of the
+     * locked row. If the factory throws, the transaction is rolled back and the refresh
+     * token stays usable. Returns the retired token.
+     */
+    public Optional<AccessToken> rotateRefreshToken(String refreshToken,
+                                                    Function<AccessToken, AccessToken> replacementFactory) {
+        return transactionTemplate.execute(status -> {
+            String selectSql = "SELECT " + TOKEN_COLUMNS
+                    + " FROM access_tokens WHERE refresh_token = ? AND revoked = FALSE FOR UPDATE";
+            List<AccessToken> tokens = jdbcTemplate.query(selectSql, tokenRowMapper, refreshToken);
+            if (tokens.isEmpty()) {
+                return Optional.empty();
+            }
+
+            AccessToken existing = tokens.get(0);
+            AccessToken replacement = replacementFactory.apply(existing);
+
+            String revokeSql = """
+                UPDATE access_tokens SET revoked = TRUE, revoked_at = CURRENT_TIMESTAMP(3)
+                WHERE id = ?
+            """;
+            jdbcTemplate.update(revokeSql, existing.getId());
+            existing.setRevoked(true);
+
+            saveAll(List.of(replacement));
+            return Optional.of(existing);
+        });
+    }
+
     public List<AccessToken> findByUsuarioId(Long usuarioId) {
-        String sql = "SELECT * FROM access_tokens WHERE usuario_id = ? ORDER BY created_at DESC";
+        String sql = "SELECT " + TOKEN_COLUMNS + " FROM access_tokens WHERE usuario_id = ? ORDER BY created_at DESC";
         return jdbcTemplate.query(sql, tokenRowMapper, usuarioId);
     }
 
     public List<AccessToken> findByClientId(String clientId) {
-        String sql = "SELECT * FROM access_tokens WHERE client_id = ? ORDER BY created_at DESC";
+        String sql = "SELECT " + TOKEN_COLUMNS + " FROM access_tokens WHERE client_id = ? ORDER BY created_at DESC";
         return jdbcTemplate.query(sql, tokenRowMapper, clientId);
     }
 
-    public void revokeToken(String tokenId) {
-        String sql = "UPDATE access_tokens SET revoked = TRUE WHERE token_id = ?";
-        jdbcTemplate.update(sql, tokenId);
+    /**
+     * Revokes the live token {@code tokenId} and returns its expiry, read in the same
+     * transaction, or an empty result if there was no live token to revoke.
+     */
+    public Optional<LocalDateTime> revokeToken(String tokenId) {
+        return transactionTemplate.execute(status -> {
+            String sql = """
+                UPDATE access_tokens SET revoked = TRUE, revoked_at = CURRENT_TIMESTAMP(3)
+                WHERE token_id = ? AND revoked = FALSE
+            """;
+            if (jdbcTemplate.update(sql, tokenId) == 0) {
+                return Optional.empty();
+            }
+
+            String selectSql = "SELECT expires_at FROM access_tokens WHERE token_id = ?";
+            List<LocalDateTime> expiries = jdbcTemplate.query(selectSql,
+                    (rs, rowNum) -> rs.getTimestamp("expires_at").toLocalDateTime(), tokenId);
+            return expiries.isEmpty() ? Optional.empty() : Optional.of(expiries.get(0));
+        });
     }
 
-    public void revokeAllUserTokens(Long usuarioId) {
-        String sql = "UPDATE access_tokens SET revoked = TRUE WHERE usuario_id = ?";
-        jdbcTemplate.update(sql, usuarioId);
+    /**
+     * Returns unexpired revoked tokens, revoked at or after {@code since} (all of them
+     * when {@code since} is {@code null}), oldest revocation first.
+     */
+    public List<RevokedToken> findRevokedSince(LocalDateTime since) {
+        String sql = """
+            SELECT token_id, expires_at, revoked_at FROM access_tokens
+            WHERE revoked = TRUE AND expires_at > ? AND revoked_at >= ?
+            ORDER BY revoked_at
+        """;
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new RevokedToken(
+                        rs.getString("token_id"),
+                        rs.getTimestamp("expires_at").toLocalDateTime(),
+                        rs.getTimestamp("revoked_at").toLocalDateTime()),
+                LocalDateTime.now(),
+                since != null ? since : LocalDateTime.of(1970, 1, 1, 0, 0));
     }
 
     public void deleteExpiredTokens() {
-        String sql = "DELETE FROM access_tokens WHERE expires_at < ? OR revoked = TRUE";
+        // Revoked tokens are kept until they expire so the revocation index can be rebuilt
+        String sql = "DELETE FROM access_tokens WHERE expires_at < ?";
         jdbcTemplate.update(sql, LocalDateTime.now());
     }
 
     public List<AccessToken> findExpiredTokens() {
-        String sql = "SELECT * FROM access_tokens WHERE expires_at < ? AND revoked = FALSE";
+        String sql = "SELECT " + TOKEN_COLUMNS + " FROM access_tokens WHERE expires_at < ? AND revoked = FALSE";
         return jdbcTemplate.query(sql, tokenRowMapper, LocalDateTime.now());
     }
 
@@ -143,4 +302,7 @@ public class AccessTokenRepository {
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, tokenId);
         return count != null && count > 0;
     }
-}
\ No newline at end of file
+
+    public record RevokedToken(String tokenId, LocalDateTime expiresAt, LocalDateTime revokedAt) {
+    }
+}
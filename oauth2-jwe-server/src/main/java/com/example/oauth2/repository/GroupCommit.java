@@ -0,0 +1,203 @@
+package com.example.oauth2.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Leader/follower group commit for inserts.
+ * <p>
+ * Concurrent {@link #submit} callers join a pending group. One of them is the leader:
+ * it writes up to {@code maxBatchSize} rows of the group with a single batch and
+ * transaction, while rows arriving meanwhile gather into the next group. The others
+ * park until their row is committed or until they are promoted to lead the next
+ * group. Every caller returns only once its own row is committed, or throws the
+ * exception that prevented it.
+ * <p>
+ * If a group's batch fails, its rows are retried one by one, so a single bad row
+ * (a duplicate key, say) fails only its own caller. An {@link Error} from a writer
+ * fails every row of the group not yet committed, and leadership still passes on.
+ */
+public class GroupCommit<T> {
+
+    private final Consumer<List<T>> batchWriter;
+    private final Consumer<T> singleWriter;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Request<T>> pending = new ArrayList<>();
+    private boolean leaderActive;
+
+    /**
+     * @param batchWriter  writes all rows in one transaction, or throws
+     * @param singleWriter writes one row, used when a batch fails
+     * @param maxWaitNanos how long a new leader waits for more rows to join a group
+     *                     that is not full; 0 writes at once
+     */
+    public GroupCommit(Consumer<List<T>> batchWriter, Consumer<T> singleWriter, int maxBatchSize, long maxWaitNanos) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.batchWriter = batchWriter;
+        this.singleWriter = singleWriter;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public void submit(T item) {
+        Request<T> request = new Request<>(item, Thread.currentThread());
+        boolean leader;
+        lock.lock();
+        try {
+            pending.add(request);
+            leader = !leaderActive;
+            leaderActive = true;
+        } finally {
+            lock.unlock();
+        }
+
+        if (!leader) {
+            request.awaitCompletionOrPromotion();
+        }
+        if (!request.done) {
+            lead();
+        }
+        Throwable failure = request.failure;
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Group commit failed", failure);
+        }
+    }
+
+    private void lead() {
+        // The leader's own row is always first in line: it either found the queue empty
+        // or was promoted as its head
+        if (maxWaitNanos > 0 && pendingSize() < maxBatchSize) {
+            LockSupport.parkNanos(maxWaitNanos);
+        }
+
+        List<Request<T>> group;
+        lock.lock();
+        try {
+            List<Request<T>> head = pending.subList(0, Math.min(pending.size(), maxBatchSize));
+            group = new ArrayList<>(head);
+            head.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            write(group);
+        } catch (Throwable t) {
+            for (Request<T> request : group) {
+                if (!request.done) {
+                    request.complete(t);
+                }
+            }
+            throw t;
+        } finally {
+            handOff();
+        }
+    }
+
+    private void handOff() {
+        // Promote the head of the next group, or let the next submitter lead
+        Request<T> next = null;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                leaderActive = false;
+            } else {
+                next = pending.get(0);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (next != null) {
+            next.promote();
+        }
+    }
+
+    private void write(List<Request<T>> group) {
+        List<T> items = new ArrayList<>(group.size());
+        for (Request<T> request : group) {
+            items.add(request.item);
+        }
+        try {
+            batchWriter.accept(items);
+            group.forEach(request -> request.complete(null));
+            return;
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).complete(e);
+                return;
+            }
+        }
+        for (Request<T> request : group) {
+            try {
+                singleWriter.accept(request.item);
+                request.complete(null);
+            } catch (RuntimeException e) {
+                request.complete(e);
+            }
+        }
+    }
+
+    private int pendingSize() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Request<T> {
+
+        final T item;
+        final Thread waiter;
+        volatile boolean done;
+        volatile boolean promoted;
+        volatile Throwable failure;
+
+        Request(T item, Thread waiter) {
+            this.item = item;
+            this.waiter = waiter;
+        }
+
+        void complete(Throwable failure) {
+            this.failure = failure;
+            done = true;
+            if (waiter != Thread.currentThread()) {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        void promote() {
+            promoted = true;
+            LockSupport.unpark(waiter);
+        }
+
+        void awaitCompletionOrPromotion() {
+            boolean interrupted = false;
+            while (!done && !promoted) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    // Our row may already be in a leader's batch; keep waiting for the outcome
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.oauth2.repository;
+
+import com.example.oauth2.model.OAuth2Client;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class OAuth2ClientRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final RowMapper<OAuth2Client> clientRowMapper = new RowMapper<OAuth2Client>() {
+        @Override
+        public OAuth2Client mapRow(ResultSet rs, int rowNum) throws SQLException {
+            OAuth2Client client = new OAuth2Client();
+            client.setId(rs.getLong("id"));
+            client.setClientId(rs.getString("client_id"));
+            client.setClientSecret(rs.getString("client_secret"));
+            client.setClientName(rs.getString("client_name"));
+            client.setScopes(rs.getString("scopes"));
+            client.setGrantTypes(rs.getString("grant_types"));
+            client.setRedirectUris(rs.getString("redirect_uris"));
+            client.setAtivo(rs.getBoolean("ativo"));
+            client.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            client.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+            return client;
+        }
+    };
+
+    public List<OAuth2Client> findAll() {
+        String sql = "SELECT * FROM oauth2_clients ORDER BY updated_at";
+        return jdbcTemplate.query(sql, clientRowMapper);
+    }
+
+    /**
+     * Returns clients, active or not, updated at or after {@code since}, oldest change
+     * first.
+     */
+    public List<OAuth2Client> findUpdatedSince(LocalDateTime since) {
+        String sql = "SELECT * FROM oauth2_clients WHERE updated_at >= ? ORDER BY updated_at";
+        return jdbcTemplate.query(sql, clientRowMapper, since);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.oauth2.repository;
+
+/**
+ * Published by {@link UsuarioRepository} after each write to a user row, so caches
+ * of user data can drop their copy. Delivered synchronously on the writing thread.
+ *
+ * @param userId ID of the changed user
+ * @param login  login of the changed user, {@code null} when the write did not load it
+ */
+public record UsuarioChangedEvent(Long userId, String login) {
+}
@@ -3,6 +3,7 @@ package com.example.oauth2.repository;
 import com.example.oauth2.model.Usuario;
 import com.example.oauth2.model.Role;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
@@ -19,6 +20,9 @@ public class UsuarioRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private final RowMapper<Usuario> usuarioRowMapper = new RowMapper<Usuario>() {
         @Override
         public Usuario mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -31,6 +35,7 @@ public class UsuarioRepository {
             usuario.setAtivo(rs.getBoolean("ativo"));
             usuario.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
             usuario.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+            usuario.setTokenEpoch(rs.getInt("token_epoch"));
             return usuario;
         }
     };
@@ -97,11 +102,10 @@ public class UsuarioRepository {
     }
 
     public Usuario save(Usuario usuario) {
-        if (usuario.getId() == null) {
-            return insert(usuario);
-        } else {
-            return update(usuario);
-        }
+        Usuario saved = usuario.getId() == null ? insert(usuario) : update(usuario);
+        // Any change to the account may change its password or status
+        eventPublisher.publishEvent(new UsuarioChangedEvent(saved.getId(), saved.getLogin()));
+        return saved;
     }
 
     private Usuario insert(Usuario usuario) {
@@ -153,9 +157,58 @@ public class UsuarioRepository {
         return usuario;
     }
 
+    /**
+     * Replaces the user's password hash if it is still {@code expectedHash}, so a
+     * rehash never overwrites a password changed concurrently. Returns whether the
+     * row was updated.
+     */
+    public boolean updatePasswordHash(Long id, String expectedHash, String newHash) {
+        String sql = "UPDATE usuarios SET senha = ?, updated_at = ? WHERE id = ? AND senha = ?";
+        boolean updated = jdbcTemplate.update(sql, newHash, LocalDateTime.now(), id, expectedHash) > 0;
+        if (updated) {
+            eventPublisher.publishEvent(new UsuarioChangedEvent(id, null));
+        }
+        return updated;
+    }
+
+    /**
+     * Increments the user's token epoch, invalidating every token issued before, and
+     * returns the new epoch, or 0 if there is no such user.
+     */
+    public int bumpTokenEpoch(Long id) {
+        String sql = "UPDATE usuarios SET token_epoch = token_epoch + 1, token_epoch_changed_at = CURRENT_TIMESTAMP(3) WHERE id = ?";
+        if (jdbcTemplate.update(sql, id) == 0) {
+            return 0;
+        }
+        eventPublisher.publishEvent(new UsuarioChangedEvent(id, null));
+
+        // The row may be deleted between the two statements
+        List<Integer> epochs = jdbcTemplate.queryForList("SELECT token_epoch FROM usuarios WHERE id = ?", Integer.class, id);
+        return epochs.isEmpty() || epochs.get(0) == null ? 0 : epochs.get(0);
+    }
+
+    /**
+     * Returns users whose token epoch changed at or after {@code since} (every user
+     * with a non-zero epoch when {@code since} is {@code null}), oldest change first.
+     */
+    public List<TokenEpoch> findTokenEpochsChangedSince(LocalDateTime since) {
+        String sql = """
+            SELECT id, token_epoch, token_epoch_changed_at FROM usuarios
+            WHERE token_epoch > 0 AND token_epoch_changed_at >= ?
+            ORDER BY token_epoch_changed_at
+        """;
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new TokenEpoch(
+                        rs.getLong("id"),
+                        rs.getInt("token_epoch"),
+                        rs.getTimestamp("token_epoch_changed_at").toLocalDateTime()),
+                since != null ? since : LocalDateTime.of(1970, 1, 1, 0, 0));
+    }
+
     public void deleteById(Long id) {
         String sql = "DELETE FROM usuarios WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        eventPublisher.publishEvent(new UsuarioChangedEvent(id, null));
     }
 
     public List<Usuario> findAll() {
@@ -180,4 +233,7 @@ public class UsuarioRepository {
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, email);
         return count != null && count > 0;
     }
-}
\ No newline at end of file
+
+    public record TokenEpoch(Long userId, int epoch, LocalDateTime changedAt) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.oauth2.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * BCrypt encoder whose cost is chosen per host at startup.
+ * <p>
+ * Unless {@code oauth2.password-hashing.strength} pins it, the cost is the highest one
+ * in [{@code min-strength}, {@code max-strength}] whose hash time, extrapolated from a
+ * measurement at {@code min-strength} (each step doubles it), stays within
+ * {@code target-ms}. Hashes of any cost still verify; {@link #upgradeEncoding} reports
+ * those below the chosen cost, so they can be rehashed on the next successful login.
+ * <p>
+ * Rehashing only goes up. Nodes on different hardware calibrate to different costs,
+ * and rehashing down as well would make a user's hash flip between them on every
+ * login; instead a hash settles at the highest cost any node chose. Pin
+ * {@code strength} when all nodes must use exactly the same cost.
+ */
+public class CalibratedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalibratedPasswordEncoder.class);
+
+    private static final int CALIBRATION_SAMPLES = 3;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final int configuredStrength;
+    private final long targetMs;
+    private final int minStrength;
+    private final int maxStrength;
+
+    private volatile BCryptPasswordEncoder delegate;
+    private volatile int strength;
+
+    public CalibratedPasswordEncoder(int configuredStrength, long targetMs, int minStrength, int maxStrength) {
+        this.configuredStrength = configuredStrength;
+        this.targetMs = targetMs;
+        this.minStrength = minStrength;
+        this.maxStrength = maxStrength;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (minStrength < 4 || maxStrength > 31 || minStrength > maxStrength) {
+            throw new IllegalStateException("Invalid BCrypt strength range: " + minStrength + ".." + maxStrength);
+        }
+        if (configuredStrength > 0) {
+            useStrength(configuredStrength);
+            logger.info("Password hashing uses configured BCrypt cost {}", strength);
+            return;
+        }
+
+        long nanos = measure(minStrength);
+        int chosen = minStrength;
+        long estimate = nanos;
+        while (chosen < maxStrength && estimate * 2 <= targetMs * 1_000_000L) {
+            chosen++;
+            estimate *= 2;
+        }
+        useStrength(chosen);
+        logger.info("Password hashing calibrated to BCrypt cost {} (~{} ms per hash, target {} ms)",
+                strength, estimate / 1_000_000L, targetMs);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        // The cost is read from the hash itself, so any cost verifies
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    /**
+     * Returns {@code true} when {@code encodedPassword} was hashed at a lower cost than
+     * the current one. Dearer hashes are kept; see the class comment.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return costOf(encodedPassword) < strength;
+    }
+
+    static int costOf(String encodedPassword) {
+        // $2a$10$<53 chars of salt and hash>
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = encodedPassword.charAt(4);
+        char units = encodedPassword.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(units)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    private void useStrength(int newStrength) {
+        delegate = new BCryptPasswordEncoder(newStrength);
+        strength = newStrength;
+    }
+
+    private static long measure(int cost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        encoder.encode(CALIBRATION_PASSWORD); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(CALIBRATION_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.oauth2.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the {@code roles} claim to {@code ROLE_*} and the {@code scopes} claim to
+ * {@code SCOPE_*} authorities.
+ * <p>
+ * Tokens share a handful of (roles, scopes) combinations, so the immutable authority
+ * list for each combination is built once and returned as-is afterwards; repeat
+ * requests allocate no authority objects. At most {@value #MAX_ENTRIES} combinations
+ * are kept, beyond that lists are built per call.
+ */
+public class InternedAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+    static final int MAX_ENTRIES = 1024;
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final String SCOPE_PREFIX = "SCOPE_";
+
+    private final ConcurrentHashMap<Key, List<GrantedAuthority>> authorities = new ConcurrentHashMap<>();
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        // Read the raw claims: getClaimAsStringList would copy them on every call
+        Key key = new Key(jwt.getClaims().get("roles"), jwt.getClaims().get("scopes"));
+
+        List<GrantedAuthority> cached = authorities.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<GrantedAuthority> built = build(key);
+        if (authorities.size() < MAX_ENTRIES) {
+            List<GrantedAuthority> previous = authorities.putIfAbsent(key, built);
+            return previous != null ? previous : built;
+        }
+        return built;
+    }
+
+    int size() {
+        return authorities.size();
+    }
+
+    private static List<GrantedAuthority> build(Key key) {
+        Set<GrantedAuthority> result = new LinkedHashSet<>();
+        addAll(result, ROLE_PREFIX, key.roles());
+        addAll(result, SCOPE_PREFIX, key.scopes());
+        return List.copyOf(result);
+    }
+
+    private static void addAll(Set<GrantedAuthority> result, String prefix, Object claim) {
+        if (claim instanceof Collection<?> values) {
+            for (Object value : values) {
+                result.add(new SimpleGrantedAuthority(prefix + value));
+            }
+        } else if (claim instanceof String value) {
+            // Space-delimited, as in the standard "scope" claim
+            for (String part : value.split(" ")) {
+                if (!part.isEmpty()) {
+                    result.add(new SimpleGrantedAuthority(prefix + part));
+                }
+            }
+        }
+    }
+
+    private record Key(Object roles, Object scopes) {
+    }
+}
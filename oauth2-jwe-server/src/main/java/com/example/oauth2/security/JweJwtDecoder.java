@@ -0,0 +1,68 @@
+package com.example.oauth2.security;
+
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.TokenValidationResult;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link JwtDecoder} for the resource server chain that decrypts our own dir/A256GCM
+ * JWE tokens locally through {@link JweTokenService}: no JWK fetch, no network and
+ * no database access per request.
+ * <p>
+ * Roles and scopes are exposed as plain {@code roles}/{@code scopes} claims whatever
+ * the claim profile, so the authentication converter reads one shape. The decoded
+ * {@link TokenPrincipal} is stored on the current request, where
+ * {@link TokenPrincipalResolver} picks it up without decoding again.
+ */
+@Component
+public class JweJwtDecoder implements JwtDecoder {
+
+    private static final Map<String, Object> HEADERS = Map.of("alg", "dir", "enc", "A256GCM");
+
+    private final JweTokenService jweTokenService;
+
+    public JweJwtDecoder(JweTokenService jweTokenService) {
+        this.jweTokenService = jweTokenService;
+    }
+
+    @Override
+    public Jwt decode(String token) {
+        TokenValidationResult result = jweTokenService.validate(token);
+        if (!result.isValid()) {
+            throw new BadJwtException("Invalid token: " + result.getReason().getDescription());
+        }
+
+        JWTClaimsSet claimsSet = result.getClaims();
+        TokenPrincipal principal = jweTokenService.toPrincipal(claimsSet);
+
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(TokenPrincipalResolver.REQUEST_ATTRIBUTE, principal,
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return Jwt.withTokenValue(token)
+                .headers(headers -> headers.putAll(HEADERS))
+                .claims(claims -> claims.putAll(toJwtClaims(claimsSet, principal)))
+                .build();
+    }
+
+    private static Map<String, Object> toJwtClaims(JWTClaimsSet claimsSet, TokenPrincipal principal) {
+        Map<String, Object> claims = new HashMap<>(claimsSet.getClaims());
+        // Jwt requires Instant timestamps; Nimbus hands out Dates
+        claims.replaceAll((name, value) -> value instanceof Date date ? date.toInstant() : value);
+        claims.put("roles", principal.getRoles());
+        claims.put("scopes", principal.getScopes());
+        return claims;
+    }
+}
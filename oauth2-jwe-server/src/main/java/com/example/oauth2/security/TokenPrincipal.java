@@ -0,0 +1,99 @@
+package com.example.oauth2.security;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Typed view of a decrypted access token.
+ * <p>
+ * Built once from the {@link JWTClaimsSet} of a validated token so that callers
+ * read plain fields instead of decrypting and parsing the token again for each claim.
+ */
+public final class TokenPrincipal {
+
+    private final String tokenId;
+    private final Long userId;
+    private final String username;
+    private final String clientId;
+    private final List<String> roles;
+    private final List<String> scopes;
+    private final Date issuedAt;
+    private final Date expiresAt;
+
+    public TokenPrincipal(String tokenId, Long userId, String username, String clientId,
+                          List<String> roles, List<String> scopes, Date issuedAt, Date expiresAt) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.username = username;
+        this.clientId = clientId;
+        this.roles = roles != null ? List.copyOf(roles) : List.of();
+        this.scopes = scopes != null ? List.copyOf(scopes) : List.of();
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public static TokenPrincipal fromClaims(JWTClaimsSet claims) {
+        try {
+            return new TokenPrincipal(
+                    claims.getJWTID(),
+                    claims.getLongClaim("user_id"),
+                    claims.getSubject(),
+                    claims.getStringClaim("client_id"),
+                    claims.getStringListClaim("roles"),
+                    claims.getStringListClaim("scopes"),
+                    claims.getIssueTime(),
+                    claims.getExpirationTime()
+            );
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Malformed token claims", e);
+        }
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public List<String> getScopes() {
+        return scopes;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenPrincipal{" +
+                "tokenId='" + tokenId + '\'' +
+                ", userId=" + userId +
+                ", username='" + username + '\'' +
+                ", clientId='" + clientId + '\'' +
+                ", roles=" + roles +
+                ", scopes=" + scopes +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
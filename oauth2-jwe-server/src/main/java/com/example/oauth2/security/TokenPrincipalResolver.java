@@ -0,0 +1,54 @@
+package com.example.oauth2.security;
+
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.TokenValidationResult;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the {@link TokenPrincipal} of the current request.
+ * <p>
+ * The bearer token is decoded at most once per request; the result is kept as a
+ * request attribute and returned as-is to every later caller.
+ */
+@Component
+public class TokenPrincipalResolver {
+
+    public static final String REQUEST_ATTRIBUTE = TokenPrincipal.class.getName();
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JweTokenService jweTokenService;
+
+    public TokenPrincipalResolver(JweTokenService jweTokenService) {
+        this.jweTokenService = jweTokenService;
+    }
+
+    /**
+     * Returns the principal of the request's bearer token, or {@code null} if the
+     * token is invalid. A missing or non-bearer header is a client error.
+     */
+    public TokenPrincipal resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof TokenPrincipal principal) {
+            return principal;
+        }
+
+        String token = extractTokenFromHeader(request.getHeader("Authorization"));
+        TokenValidationResult result = jweTokenService.validate(token);
+        if (!result.isValid()) {
+            return null;
+        }
+
+        TokenPrincipal principal = jweTokenService.toPrincipal(result.getClaims());
+        request.setAttribute(REQUEST_ATTRIBUTE, principal);
+        return principal;
+    }
+
+    public static String extractTokenFromHeader(String authHeader) {
+        if (authHeader != null && authHeader.startsWith(BEARER_PREFIX)) {
+            return authHeader.substring(BEARER_PREFIX.length());
+        }
+        throw new IllegalArgumentException("Invalid authorization header");
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.repository.AccessTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persists issued access tokens, either inline or write-behind.
+ * <p>
+ * Inline (the default) is a plain {@link AccessTokenRepository#save}. With
+ * {@code oauth2.write-behind.enabled} tokens go onto a bounded queue instead and a
+ * background writer inserts them in JDBC batches, as soon as {@code batch-size} are
+ * queued or otherwise every {@code flush-interval-ms}. When the queue is full callers
+ * wait up to {@code offer-timeout-ms} and are then shed with
+ * {@link ServiceOverloadedException}. Shutdown drains the queue.
+ * <p>
+ * Code that reads token rows back (refresh, revocation) calls {@link #flush()} first,
+ * so it never misses a token issued a moment earlier.
+ */
+@Component
+public class AccessTokenWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenWriter.class);
+
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final int maxAttempts;
+    private final long shutdownTimeoutMs;
+    private final AccessTokenRepository accessTokenRepository;
+    private final MeterRegistry meterRegistry;
+
+    private BlockingQueue<AccessToken> queue;
+
+    // Tokens handed to write(), counted before they are queued, and tokens stored,
+    // dropped or rejected
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    private final Condition batchDone = lock.newCondition();
+    private boolean flushRequested;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    private Timer flushTimer;
+    private Counter rejected;
+    private Counter dropped;
+
+    public AccessTokenWriter(@Value("${oauth2.write-behind.enabled:false}") boolean enabled,
+                             @Value("${oauth2.write-behind.queue-capacity:10000}") int queueCapacity,
+                             @Value("${oauth2.write-behind.batch-size:200}") int batchSize,
+                             @Value("${oauth2.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                             @Value("${oauth2.write-behind.offer-timeout-ms:100}") long offerTimeoutMs,
+                             @Value("${oauth2.write-behind.max-attempts:3}") int maxAttempts,
+                             @Value("${oauth2.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                             AccessTokenRepository accessTokenRepository,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.accessTokenRepository = accessTokenRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("Access tokens are persisted inline");
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        flushTimer = Timer.builder("oauth2.token.write.flush").register(meterRegistry);
+        rejected = Counter.builder("oauth2.token.write.rejected").register(meterRegistry);
+        dropped = Counter.builder("oauth2.token.write.dropped").register(meterRegistry);
+        Gauge.builder("oauth2.token.write.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "token-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        logger.info("Access tokens are persisted write-behind (queue capacity: {}, batch size: {}, flush interval: {} ms)",
+                queueCapacity, batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled || !running) {
+            return;
+        }
+        running = false;
+        signal(false);
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            logger.warn("Token writer did not stop within {} ms, {} token(s) still queued",
+                    shutdownTimeoutMs, queue.size());
+        } else {
+            logger.info("Token writer stopped");
+        }
+    }
+
+    public boolean isWriteBehind() {
+        return enabled;
+    }
+
+    public void write(AccessToken token) {
+        if (!enabled) {
+            accessTokenRepository.save(token);
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Token writer is shut down");
+        }
+
+        // Count first, so a flush() that starts once the token is queued waits for it
+        long sequence = enqueued.incrementAndGet();
+        boolean queued;
+        try {
+            queued = queue.offer(token, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            processed.incrementAndGet();
+            signal(true);
+            rejected.increment();
+            throw new ServiceOverloadedException("Token write queue is full", 1);
+        }
+        if (!running) {
+            // Shut down meanwhile; the writer may have drained the queue and exited already
+            drainInline();
+            return;
+        }
+        if (sequence % batchSize == 0) {
+            // A full batch is waiting; don't let it sit until the interval ends
+            signal(false);
+        }
+    }
+
+    /**
+     * Waits until every token queued before this call has been stored. A no-op when
+     * writes are inline or nothing is pending.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        long target = enqueued.get();
+        if (processed.get() >= target) {
+            return;
+        }
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        lock.lock();
+        try {
+            flushRequested = true;
+            wakeUp.signal();
+            while (processed.get() < target && writerThread.isAlive()) {
+                if (remainingNanos <= 0) {
+                    throw new IllegalStateException("Timed out waiting for queued tokens to be stored");
+                }
+                remainingNanos = batchDone.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for queued tokens to be stored", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    private void runWriter() {
+        List<AccessToken> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                awaitBatch();
+                queue.drainTo(batch, batchSize);
+                if (!batch.isEmpty()) {
+                    try {
+                        store(batch);
+                    } finally {
+                        // Stored or dropped, these tokens are done; flush() must not wait on them
+                        processed.addAndGet(batch.size());
+                        batch.clear();
+                    }
+                }
+                signal(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in token writer", e);
+            }
+        }
+        signal(true);
+    }
+
+    /**
+     * Stores whatever is still queued on the calling thread.
+     */
+    private void drainInline() {
+        List<AccessToken> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                store(batch);
+            } finally {
+                processed.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+        signal(true);
+    }
+
+    private void awaitBatch() throws InterruptedException {
+        // Sleep until a full batch is queued, the flush interval ends, or someone flushes
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        lock.lock();
+        try {
+            while (running && !flushRequested && queue.size() < batchSize && remainingNanos > 0) {
+                remainingNanos = wakeUp.awaitNanos(remainingNanos);
+            }
+            if (queue.size() <= batchSize) {
+                flushRequested = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signal(boolean done) {
+        lock.lock();
+        try {
+            if (done) {
+                batchDone.signalAll();
+            } else {
+                wakeUp.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(List<AccessToken> batch) {
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                accessTokenRepository.saveAll(batch);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            } catch (DataAccessException e) {
+                if (attempt >= maxAttempts) {
+                    dropped.increment(batch.size());
+                    logger.error("Dropping {} access token(s) after {} failed write attempts",
+                            batch.size(), attempt, e);
+                    return;
+                }
+                logger.warn("Token batch write failed (attempt {} of {}), retrying: {}",
+                        attempt, maxAttempts, e.getMessage());
+            } catch (RuntimeException e) {
+                // Not a database error, so retrying would fail the same way
+                dropped.increment(batch.size());
+                logger.error("Dropping {} access token(s) after an unexpected write failure", batch.size(), e);
+                return;
+            }
+        }
+    }
+}
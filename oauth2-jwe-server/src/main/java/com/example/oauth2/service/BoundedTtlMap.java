@@ -0,0 +1,122 @@
+package com.example.oauth2.service;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size-bounded concurrent map whose values carry their own expiry, the store behind
+ * the short-lived caches of this package.
+ * <p>
+ * Expired values are never returned and are dropped on access or by
+ * {@link #purgeExpired()}, which the owning cache schedules. When the map is full, a
+ * new key evicts the value expiring first among a small sample, trading exact LRU
+ * order for an eviction that takes no lock. Both kinds of removal are counted on the
+ * {@code evictions} counter given by the owner.
+ */
+public final class BoundedTtlMap<K, V> {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final ToLongFunction<V> expiresAtMillis;
+    private final Counter evictions;
+
+    /**
+     * @param expiresAtMillis reads a value's expiry in epoch millis; may change while
+     *                        the value is held, e.g. once an in-flight value completes
+     */
+    public BoundedTtlMap(int maxSize, ToLongFunction<V> expiresAtMillis, Counter evictions) {
+        this.maxSize = maxSize;
+        this.expiresAtMillis = expiresAtMillis;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code null} if there is none or it expired.
+     */
+    public V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (expiresAtMillis.applyAsLong(value) <= System.currentTimeMillis()) {
+            entries.remove(key, value);
+            return null;
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        makeRoomFor(key);
+        entries.put(key, value);
+    }
+
+    /**
+     * Stores {@code value} unless {@code key} already has one, expired or not, and
+     * returns that one.
+     */
+    public V putIfAbsent(K key, V value) {
+        makeRoomFor(key);
+        return entries.putIfAbsent(key, value);
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void remove(K key, V value) {
+        entries.remove(key, value);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops every expired value and returns how many were dropped.
+     */
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (expiresAtMillis.applyAsLong(iterator.next().getValue()) <= now) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            evictions.increment(removed);
+        }
+        return removed;
+    }
+
+    private void makeRoomFor(K key) {
+        if (entries.size() < maxSize || entries.containsKey(key)) {
+            return;
+        }
+        // Sampled eviction: drop the value that expires first among the first few seen.
+        // Values that never expire (Long.MAX_VALUE) are never picked.
+        K victim = null;
+        long victimExpiry = Long.MAX_VALUE;
+        int sampled = 0;
+        for (Map.Entry<K, V> candidate : entries.entrySet()) {
+            long expiry = expiresAtMillis.applyAsLong(candidate.getValue());
+            if (expiry < victimExpiry) {
+                victim = candidate.getKey();
+                victimExpiry = expiry;
+            }
+            if (++sampled >= EVICTION_SAMPLE_SIZE) {
+                break;
+            }
+        }
+        if (victim != null && entries.remove(victim) != null) {
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.model.OAuth2Client;
+import com.example.oauth2.repository.OAuth2ClientRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory snapshot of the registered clients in {@code oauth2_clients}, so client
+ * authentication needs no database round trip.
+ * <p>
+ * The snapshot is an immutable map replaced as a whole: lookups are a plain read of
+ * a volatile field. It is refreshed by a {@link WatermarkPoller} on {@code updated_at},
+ * and fully reloaded every {@code full-reload-interval-ms} to pick up deleted rows.
+ * Inactive clients are left out. Secrets are verified with BCrypt on the hashing
+ * bulkhead and the result is remembered by the {@link VerifiedCredentialCache}.
+ */
+@Component
+public class ClientRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientRegistry.class);
+
+    private final long overlapMs;
+    private final long fullReloadIntervalMs;
+    private final OAuth2ClientRepository clientRepository;
+    private final PasswordHashingBulkhead passwordHashingBulkhead;
+    private final VerifiedCredentialCache credentialCache;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Map<String, RegisteredClient> clients = Map.of();
+
+    private WatermarkPoller<OAuth2Client> poller;
+    private volatile long lastFullReloadMillis;
+
+    public ClientRegistry(@Value("${oauth2.client-registry.overlap-ms:5000}") long overlapMs,
+                          @Value("${oauth2.client-registry.full-reload-interval-ms:300000}") long fullReloadIntervalMs,
+                          OAuth2ClientRepository clientRepository,
+                          PasswordHashingBulkhead passwordHashingBulkhead,
+                          VerifiedCredentialCache credentialCache,
+                          MeterRegistry meterRegistry) {
+        this.overlapMs = overlapMs;
+        this.fullReloadIntervalMs = fullReloadIntervalMs;
+        this.clientRepository = clientRepository;
+        this.passwordHashingBulkhead = passwordHashingBulkhead;
+        this.credentialCache = credentialCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        poller = new WatermarkPoller<>("Client registry", overlapMs, OAuth2Client::getUpdatedAt);
+        Gauge.builder("oauth2.client.registry.size", this, registry -> registry.clients.size())
+                .register(meterRegistry);
+        Gauge.builder("oauth2.client.registry.staleness", poller, WatermarkPoller::stalenessSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        refresh();
+        logger.info("Client registry loaded with {} active client(s)", clients.size());
+    }
+
+    /**
+     * Authenticates a client and checks that it may use {@code grantType} and every
+     * scope in {@code scopes}. Returns the client.
+     */
+    public RegisteredClient authenticate(String clientId, String clientSecret, String grantType,
+                                         Collection<String> scopes) {
+        if (clientId == null || clientSecret == null) {
+            throw new IllegalArgumentException("Client credentials are required");
+        }
+
+        RegisteredClient client = clients.get(clientId);
+        if (client == null) {
+            throw new IllegalArgumentException("Invalid client credentials");
+        }
+        if (!credentialCache.isClientVerified(clientId, clientSecret, client.secretHash())) {
+            if (!passwordHashingBulkhead.matches(clientSecret, client.secretHash())) {
+                throw new IllegalArgumentException("Invalid client credentials");
+            }
+            credentialCache.recordClientVerified(clientId, clientSecret, client.secretHash());
+        }
+
+        if (!client.grantTypes().contains(grantType)) {
+            throw new IllegalArgumentException("Client is not allowed to use grant type: " + grantType);
+        }
+        for (String scope : scopes) {
+            if (!client.scopes().contains(scope)) {
+                throw new IllegalArgumentException("Scope not allowed for client: " + scope);
+            }
+        }
+        return client;
+    }
+
+    public RegisteredClient find(String clientId) {
+        return clientId != null ? clients.get(clientId) : null;
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Pulls clients changed since the watermark into a new snapshot, or reloads all of
+     * them when the full reload interval has passed.
+     */
+    @Scheduled(fixedDelayString = "${oauth2.client-registry.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        boolean fullReload = lastFullReloadMillis == 0 || now - lastFullReloadMillis >= fullReloadIntervalMs;
+        boolean refreshed = poller.poll(
+                // No watermark yet means no clients were seen; read them all until one appears
+                since -> fullReload || since == null ? clientRepository.findAll() : clientRepository.findUpdatedSince(since),
+                rows -> apply(rows, fullReload));
+        if (refreshed && fullReload) {
+            lastFullReloadMillis = now;
+        }
+    }
+
+    private void apply(List<OAuth2Client> rows, boolean fullReload) {
+        if (!fullReload && rows.isEmpty()) {
+            return;
+        }
+        Map<String, RegisteredClient> next = fullReload ? new HashMap<>() : new HashMap<>(clients);
+        for (OAuth2Client row : rows) {
+            if (Boolean.TRUE.equals(row.getAtivo())) {
+                next.put(row.getClientId(), RegisteredClient.of(row));
+            } else {
+                next.remove(row.getClientId());
+            }
+        }
+        clients = Map.copyOf(next);
+    }
+
+    public record RegisteredClient(String clientId, String secretHash, Set<String> scopes, Set<String> grantTypes) {
+
+        static RegisteredClient of(OAuth2Client row) {
+            return new RegisteredClient(row.getClientId(), row.getClientSecret(),
+                    split(row.getScopes()), split(row.getGrantTypes()));
+        }
+
+        private static Set<String> split(String list) {
+            if (list == null || list.isBlank()) {
+                return Set.of();
+            }
+            return Arrays.stream(list.split("[\\s,]+"))
+                    .filter(s -> !s.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+}
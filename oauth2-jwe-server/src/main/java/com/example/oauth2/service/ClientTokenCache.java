@@ -0,0 +1,128 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.dto.TokenResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Reuses client_credentials tokens while they are still fresh.
+ * <p>
+ * Service clients ask for a token on every call. With
+ * {@code oauth2.client-token-cache.enabled} the last token issued per client ID and
+ * scope set is handed out again as long as more than {@code min-remaining-ratio} of
+ * its lifetime is left, with {@code expires_in} counting down; repeat calls cost a
+ * map lookup instead of a JWE encryption and an INSERT. The client is still
+ * authenticated on every call. Tokens found in the {@link RevocationIndex} are never
+ * reused; a revoked entry is dropped when it is next looked up.
+ * <p>
+ * Disabled by default.
+ */
+@Component
+public class ClientTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientTokenCache.class);
+
+    private final boolean enabled;
+    private final double minRemainingRatio;
+    private final int maxSize;
+    private final RevocationIndex revocationIndex;
+    private final MeterRegistry meterRegistry;
+
+    // Entries expire once they stop being reusable, not when the token does
+    private BoundedTtlMap<Key, Entry> entries;
+
+    private Counter hits;
+    private Counter misses;
+
+    public ClientTokenCache(@Value("${oauth2.client-token-cache.enabled:false}") boolean enabled,
+                            @Value("${oauth2.client-token-cache.min-remaining-ratio:0.5}") double minRemainingRatio,
+                            @Value("${oauth2.client-token-cache.max-size:1000}") int maxSize,
+                            RevocationIndex revocationIndex,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minRemainingRatio = minRemainingRatio;
+        this.maxSize = maxSize;
+        this.revocationIndex = revocationIndex;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("oauth2.client.token.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("oauth2.client.token.cache.requests").tag("result", "miss").register(meterRegistry);
+        Counter evictions = Counter.builder("oauth2.client.token.cache.evictions").register(meterRegistry);
+        entries = new BoundedTtlMap<>(maxSize, Entry::reuseUntilMillis, evictions);
+        Gauge.builder("oauth2.client.token.cache.size", entries, BoundedTtlMap::size).register(meterRegistry);
+
+        logger.info("Client token cache {} (min remaining ratio: {}, max size: {})",
+                enabled ? "enabled" : "disabled", minRemainingRatio, maxSize);
+    }
+
+    /**
+     * Returns a still-fresh token issued to {@code clientId} for exactly these scopes,
+     * or {@code null}.
+     */
+    public TokenResponse get(String clientId, Collection<String> scopes) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = new Key(clientId, Set.copyOf(scopes));
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (revocationIndex.isRevoked(entry.tokenId)) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        TokenResponse issued = entry.response;
+        long remainingSeconds = (entry.expiresAtMillis - now) / 1000;
+        return new TokenResponse(issued.getAccessToken(), issued.getTokenType(), remainingSeconds,
+                issued.getRefreshToken(), issued.getScope());
+    }
+
+    public void put(String clientId, Collection<String> scopes, String tokenId, TokenResponse response) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long lifetimeMillis = response.getExpiresIn() * 1000;
+        long reuseUntilMillis = now + (long) (lifetimeMillis * (1 - minRemainingRatio));
+
+        Key key = new Key(clientId, Set.copyOf(scopes));
+        entries.put(key, new Entry(tokenId, response, reuseUntilMillis, now + lifetimeMillis));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${oauth2.client-token-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = entries.purgeExpired();
+        if (removed > 0) {
+            logger.debug("Purged {} stale entries from client token cache", removed);
+        }
+    }
+
+    private record Key(String clientId, Set<String> scopes) {
+    }
+
+    private record Entry(String tokenId, TokenResponse response, long reuseUntilMillis, long expiresAtMillis) {
+    }
+}
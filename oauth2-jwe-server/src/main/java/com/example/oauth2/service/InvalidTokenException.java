@@ -0,0 +1,13 @@
+package com.example.oauth2.service;
+
+/**
+ * Thrown when a JWE token is rejected. Carries no stack trace: rejections are an
+ * expected outcome on the request path, and unauthenticated clients control how
+ * often they happen.
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException(String message) {
+        super(message, null, false, false);
+    }
+}
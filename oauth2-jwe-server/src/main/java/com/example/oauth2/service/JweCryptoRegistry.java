@@ -0,0 +1,337 @@
+package com.example.oauth2.service;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.util.Base64URL;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.text.ParseException;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@code kid}-indexed keyring for JWE tokens.
+ * <p>
+ * New tokens are always issued with the active key and carry its {@code kid} in the
+ * JWE header; decoding looks the key up by that {@code kid} in O(1). Rotation builds
+ * the new key up front and publishes an immutable snapshot through a single volatile
+ * write, so readers never block and never see a half-built keyring. Previous keys
+ * stay decrypt-only for {@code jwe.keyring.retention-ms} (the longest token lifetime)
+ * and are then dropped.
+ * <p>
+ * Without {@code jwe.keyring.file} the keyring holds the single key from
+ * {@code jwe.encryption.key}/{@code jwe.signing.key}. With it, the keyring is loaded
+ * from that properties file and reloaded whenever it changes:
+ * <pre>
+ * active=k2
+ * k1.encryption-key=...
+ * k1.signing-key=...
+ * k1.retire-at=2026-10-17T12:00:00Z
+ * k2.encryption-key=...
+ * k2.signing-key=...
+ * </pre>
+ * The file is the source of truth shared by every node and it survives restarts, so
+ * retired keys keep their {@code retire-at} everywhere. To rotate without rejecting
+ * tokens on nodes that have not reloaded yet, add the new key first, switch
+ * {@code active} after one reload interval, and give the old key a {@code retire-at}
+ * past the longest token lifetime. A key that disappears from the file is kept
+ * decrypt-only for {@code retention-ms}; a known key ID whose material changed is
+ * refused.
+ */
+@Component
+public class JweCryptoRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(JweCryptoRegistry.class);
+
+    // Header parameters of tokens issued before the keyring, which carry no kid
+    private static final Set<String> LEGACY_HEADER_PARAMS = Set.of("alg", "enc", "cty");
+
+    private final String keyId;
+    private final String encryptionKey;
+    private final String signingKey;
+    private final long retentionMs;
+    private final String ivSource;
+    private final String keyringFile;
+    private final RandomIdService randomIdService;
+    private final long legacyHeadersUntil;
+
+    private SecureRandom ivRandom;
+
+    private volatile Keyring keyring;
+
+    private volatile JweHeaderTemplate legacyTemplate;
+
+    private long keyringFileModified;
+
+    public JweCryptoRegistry(@Value("${jwe.key-id:k1}") String keyId,
+                             @Value("${jwe.encryption.key}") String encryptionKey,
+                             @Value("${jwe.signing.key}") String signingKey,
+                             @Value("${jwe.keyring.retention-ms:3600000}") long retentionMs,
+                             @Value("${jwe.iv-source:jca}") String ivSource,
+                             @Value("${jwe.keyring.file:}") String keyringFile,
+                             RandomIdService randomIdService) {
+        this.keyId = keyId;
+        this.encryptionKey = encryptionKey;
+        this.signingKey = signingKey;
+        this.retentionMs = retentionMs;
+        this.ivSource = ivSource;
+        this.keyringFile = keyringFile != null ? keyringFile : "";
+        this.randomIdService = randomIdService;
+        this.legacyHeadersUntil = System.currentTimeMillis() + retentionMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            ivRandom = resolveIvSource(ivSource);
+            if (!keyringFile.isBlank()) {
+                if (!reloadKeyringFile()) {
+                    throw new IllegalStateException("Could not load JWE keyring file " + keyringFile);
+                }
+                return;
+            }
+            JweKey initialKey = JweKey.create(keyId, encryptionKey, signingKey, ivRandom);
+            keyring = Keyring.of(initialKey, Map.of(initialKey.getKeyId(), initialKey));
+
+            logger.info("JWE keyring initialized with active key '{}' ({}-bit encryption key, {} IV source)",
+                    initialKey.getKeyId(), initialKey.getEncryptionKey().getEncoded().length * 8, ivSource);
+
+        } catch (JOSEException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid JWE key configuration", e);
+        }
+    }
+
+    private SecureRandom resolveIvSource(String source) {
+        // "jca" (default): Nimbus' default SecureRandom. "buffered" (opt-in): per-thread
+        // DRBG blocks from RandomIdService. IVs stay unique either way: each is 96 bits
+        // drawn fresh from a DRBG seeded independently per thread, and bytes are wiped
+        // from the block once handed out, so no IV is served twice; collisions are as
+        // unlikely as with one shared generator. Rotate keys well before 2^32 tokens.
+        if ("buffered".equalsIgnoreCase(source)) {
+            return randomIdService.secureRandom();
+        }
+        if ("jca".equalsIgnoreCase(source)) {
+            return null;
+        }
+        throw new IllegalArgumentException("Unsupported IV source: " + source);
+    }
+
+    public JweKey getActiveKey() {
+        return keyring.active();
+    }
+
+    /**
+     * Returns the key for {@code kid}, or {@code null} if it is unknown or retired.
+     */
+    public JweKey findKey(String kid) {
+        if (kid == null) {
+            return null;
+        }
+        JweKey key = keyring.keys().get(kid);
+        if (key == null || key.isRetired(Instant.now())) {
+            return null;
+        }
+        return key;
+    }
+
+    @Scheduled(fixedDelayString = "${jwe.keyring.reload-interval-ms:30000}")
+    public void pollKeyringFile() {
+        reloadKeyringFile();
+    }
+
+    /**
+     * Reloads the keyring from {@code jwe.keyring.file} if it changed since the last
+     * load. Returns {@code false} if the file could not be read or was rejected; the
+     * current keyring then stays in place.
+     */
+    public synchronized boolean reloadKeyringFile() {
+        if (keyringFile.isBlank()) {
+            return true;
+        }
+        Path path = Path.of(keyringFile);
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (keyring != null && modified == keyringFileModified) {
+                return true;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            keyring = loadKeyring(properties, keyring, Instant.now());
+            keyringFileModified = modified;
+
+            logger.info("JWE keyring loaded from {}: active key '{}', {} key(s)",
+                    keyringFile, keyring.active().getKeyId(), keyring.keys().size());
+            return true;
+
+        } catch (IOException | JOSEException | IllegalArgumentException | DateTimeParseException e) {
+            logger.error("JWE keyring file {} rejected, keeping the current keyring: {}", keyringFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private Keyring loadKeyring(Properties properties, Keyring current, Instant now) throws JOSEException {
+        String activeKeyId = properties.getProperty("active");
+        if (activeKeyId == null || activeKeyId.isBlank()) {
+            throw new IllegalArgumentException("No active key ID");
+        }
+
+        TreeSet<String> keyIds = new TreeSet<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.endsWith(".encryption-key")) {
+                keyIds.add(name.substring(0, name.length() - ".encryption-key".length()));
+            }
+        }
+        if (!keyIds.contains(activeKeyId)) {
+            throw new IllegalArgumentException("Active key '" + activeKeyId + "' is not defined");
+        }
+
+        Map<String, JweKey> keys = new HashMap<>();
+        for (String kid : keyIds) {
+            String encryption = properties.getProperty(kid + ".encryption-key");
+            String signing = properties.getProperty(kid + ".signing-key");
+            if (signing == null) {
+                throw new IllegalArgumentException("No signing key for '" + kid + "'");
+            }
+            JweKey key = JweKey.create(kid, encryption, signing, ivRandom);
+            JweKey known = current != null ? current.keys().get(kid) : null;
+            if (known != null && !sameMaterial(known, key)) {
+                throw new IllegalArgumentException("Key material of '" + kid + "' changed; use a new key ID");
+            }
+            String retireAt = properties.getProperty(kid + ".retire-at");
+            if (retireAt != null && !kid.equals(activeKeyId)) {
+                key = key.retiringAt(Instant.parse(retireAt.trim()));
+            }
+            if (!key.isRetired(now)) {
+                keys.put(kid, key);
+            }
+        }
+        if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active key '" + activeKeyId + "' is retired");
+        }
+
+        if (current != null) {
+            // Keys dropped from the file may still protect live tokens
+            Instant fallbackRetireAt = now.plus(Duration.ofMillis(retentionMs));
+            for (JweKey known : current.keys().values()) {
+                if (!keys.containsKey(known.getKeyId()) && !keyIds.contains(known.getKeyId())) {
+                    keys.put(known.getKeyId(), known.getRetireAt() != null ? known : known.retiringAt(fallbackRetireAt));
+                    logger.warn("JWE key '{}' is no longer in the keyring file, kept decrypt-only until {}",
+                            known.getKeyId(), keys.get(known.getKeyId()).getRetireAt());
+                }
+            }
+        }
+        return Keyring.of(keys.get(activeKeyId), keys);
+    }
+
+    private static boolean sameMaterial(JweKey a, JweKey b) {
+        return MessageDigest.isEqual(a.getEncryptionKey().getEncoded(), b.getEncryptionKey().getEncoded())
+                && MessageDigest.isEqual(a.getSigningKey().getEncoded(), b.getSigningKey().getEncoded());
+    }
+
+    @Scheduled(fixedDelayString = "${jwe.keyring.purge-interval-ms:60000}")
+    public synchronized void purgeRetiredKeys() {
+        Keyring current = keyring;
+        Instant now = Instant.now();
+        if (current.keys().values().stream().noneMatch(key -> key.isRetired(now))) {
+            return;
+        }
+
+        Map<String, JweKey> keys = new HashMap<>(current.keys());
+        keys.values().removeIf(key -> key.isRetired(now));
+        keyring = Keyring.of(current.active(), keys);
+
+        logger.info("Purged retired JWE keys, {} key(s) remain", keys.size());
+    }
+
+    /**
+     * Returns the header template whose Base64URL form starts {@code token}, or
+     * {@code null} if the token was not issued with a header known to this keyring.
+     * Templates of retired keys never match.
+     */
+    public JweHeaderTemplate matchHeaderTemplate(String token) {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd < 0) {
+            return null;
+        }
+        String prefix = token.substring(0, headerEnd + 1);
+        JweHeaderTemplate template = keyring.headerTemplates().get(prefix);
+        if (template == null) {
+            template = matchLegacyHeader(prefix);
+        }
+        if (template == null || findKey(template.getKeyId()) == null) {
+            return null;
+        }
+        return template;
+    }
+
+    /**
+     * Recognizes the header of tokens issued before the keyring existed:
+     * {@code alg=dir}, {@code enc=A256GCM} and {@code cty=JWT} without a {@code kid},
+     * encrypting the bare claims with the configured key {@code jwe.key-id}. Headers
+     * are only parsed for {@code retention-ms} after startup, by which time every
+     * such token has expired.
+     */
+    private JweHeaderTemplate matchLegacyHeader(String prefix) {
+        if (System.currentTimeMillis() >= legacyHeadersUntil) {
+            return null;
+        }
+        JweHeaderTemplate legacy = legacyTemplate;
+        if (legacy != null && legacy.getPrefix().equals(prefix)) {
+            return legacy;
+        }
+        try {
+            JWEHeader header = JWEHeader.parse(new Base64URL(prefix.substring(0, prefix.length() - 1)));
+            if (!JWEAlgorithm.DIR.equals(header.getAlgorithm())
+                    || !EncryptionMethod.A256GCM.equals(header.getEncryptionMethod())
+                    || !"JWT".equals(header.getContentType())
+                    || !LEGACY_HEADER_PARAMS.equals(header.getIncludedParams())) {
+                return null;
+            }
+            legacy = JweHeaderTemplate.legacy(keyId, header);
+            legacyTemplate = legacy;
+            return legacy;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return keyring.keys().size();
+    }
+
+    private record Keyring(JweKey active, Map<String, JweKey> keys, Map<String, JweHeaderTemplate> headerTemplates) {
+
+        static Keyring of(JweKey active, Map<String, JweKey> keys) {
+            // Indexed by prefix, so decoding finds a token's template with one lookup
+            Map<String, JweHeaderTemplate> templates = new HashMap<>();
+            for (JweKey key : keys.values()) {
+                for (JweHeaderTemplate template : key.getHeaderTemplates()) {
+                    templates.put(template.getPrefix(), template);
+                }
+            }
+            return new Keyring(active, Map.copyOf(keys), Map.copyOf(templates));
+        }
+    }
+}
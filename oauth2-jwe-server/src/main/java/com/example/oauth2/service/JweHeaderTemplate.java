@@ -0,0 +1,88 @@
+package com.example.oauth2.service;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * Precomputed protected header of the tokens issued with one key and profile.
+ * <p>
+ * The header is serialized once: its Base64URL form is the fixed first segment of
+ * every such token and its ASCII bytes are the AES-GCM additional authenticated
+ * data. Issuance reuses both, and decoding recognizes the header by looking up the
+ * token's first segment, {@link #getPrefix()}, instead of parsing the header JSON.
+ */
+public final class JweHeaderTemplate {
+
+    private final String keyId;
+    private final boolean nested;
+    private final JWEHeader header;
+    private final String prefix;
+    private final byte[] aad;
+
+    private JweHeaderTemplate(String keyId, boolean nested, JWEHeader header) {
+        this.keyId = keyId;
+        this.nested = nested;
+        this.header = header;
+        String encodedHeader = header.toBase64URL().toString();
+        this.prefix = encodedHeader + '.';
+        this.aad = encodedHeader.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static JweHeaderTemplate create(String keyId, boolean nested, boolean compressed) {
+        JWEHeader.Builder builder = new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A256GCM)
+                .keyID(keyId);
+        if (nested) {
+            builder.contentType("JWT");
+        }
+        if (compressed) {
+            builder.compressionAlgorithm(CompressionAlgorithm.DEF);
+        }
+
+        try {
+            // Re-parse so the header keeps its Base64URL form instead of re-encoding it on every use
+            JWEHeader header = JWEHeader.parse(builder.build().toBase64URL());
+            return new JweHeaderTemplate(keyId, nested, header);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Cannot build JWE header template", e);
+        }
+    }
+
+    /**
+     * Wraps a header parsed from a token issued before headers carried a {@code kid}.
+     * Such tokens encrypt the bare claims, and the AAD is the header exactly as issued.
+     */
+    static JweHeaderTemplate legacy(String keyId, JWEHeader parsedHeader) {
+        return new JweHeaderTemplate(keyId, false, parsedHeader);
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public boolean isNested() {
+        return nested;
+    }
+
+    public JWEHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * First segment of the compact serialization, including the trailing dot.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Additional authenticated data for AES-GCM; shared, must not be modified.
+     */
+    public byte[] getAad() {
+        return aad;
+    }
+}
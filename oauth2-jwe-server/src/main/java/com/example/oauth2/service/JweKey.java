@@ -0,0 +1,146 @@
+package com.example.oauth2.service;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One entry of the JWE keyring: the secret keys for a {@code kid}, the
+ * thread-safe Nimbus objects built from them and the precomputed JWE headers
+ * for every token profile.
+ * <p>
+ * A key with a {@code retireAt} instant is decrypt-only: it is kept to validate
+ * tokens issued before a rotation and dropped once they have all expired.
+ */
+public final class JweKey {
+
+    private final String keyId;
+    private final SecretKey encryptionKey;
+    private final SecretKey signingKey;
+    private final JWEEncrypter encrypter;
+    private final JWEDecrypter decrypter;
+    private final JWSSigner signer;
+    private final JWSVerifier verifier;
+    private final List<JweHeaderTemplate> headerTemplates;
+    private final Instant retireAt;
+
+    private JweKey(String keyId, SecretKey encryptionKey, SecretKey signingKey,
+                   JWEEncrypter encrypter, JWEDecrypter decrypter,
+                   JWSSigner signer, JWSVerifier verifier,
+                   List<JweHeaderTemplate> headerTemplates, Instant retireAt) {
+        this.keyId = keyId;
+        this.encryptionKey = encryptionKey;
+        this.signingKey = signingKey;
+        this.encrypter = encrypter;
+        this.decrypter = decrypter;
+        this.signer = signer;
+        this.verifier = verifier;
+        this.headerTemplates = headerTemplates;
+        this.retireAt = retireAt;
+    }
+
+    public static JweKey create(String keyId, String encryptionKey, String signingKey) throws JOSEException {
+        return create(keyId, encryptionKey, signingKey, null);
+    }
+
+    /**
+     * Creates a key whose encrypter draws GCM IVs from {@code ivSource}, or from the
+     * Nimbus default when {@code null}.
+     */
+    public static JweKey create(String keyId, String encryptionKey, String signingKey,
+                                SecureRandom ivSource) throws JOSEException {
+        if (keyId == null || keyId.isBlank()) {
+            throw new IllegalArgumentException("Key ID is required");
+        }
+        SecretKey encryptionSecretKey = new SecretKeySpec(encryptionKey.getBytes(StandardCharsets.UTF_8), "AES");
+        SecretKey signingSecretKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+        DirectEncrypter encrypter = new DirectEncrypter(encryptionSecretKey);
+        if (ivSource != null) {
+            encrypter.getJCAContext().setSecureRandom(ivSource);
+        }
+
+        return new JweKey(keyId, encryptionSecretKey, signingSecretKey,
+                encrypter,
+                new DirectDecrypter(encryptionSecretKey),
+                new MACSigner(signingSecretKey),
+                new MACVerifier(signingSecretKey),
+                // Indexed by templateIndex(nested, compressed)
+                List.of(
+                        JweHeaderTemplate.create(keyId, false, false),
+                        JweHeaderTemplate.create(keyId, false, true),
+                        JweHeaderTemplate.create(keyId, true, false),
+                        JweHeaderTemplate.create(keyId, true, true)
+                ),
+                null);
+    }
+
+    /**
+     * Returns a decrypt-only copy of this key that should be dropped after {@code retireAt}.
+     */
+    public JweKey retiringAt(Instant retireAt) {
+        return new JweKey(keyId, encryptionKey, signingKey, encrypter, decrypter, signer, verifier,
+                headerTemplates, retireAt);
+    }
+
+    private static int templateIndex(boolean nested, boolean compressed) {
+        return (nested ? 2 : 0) + (compressed ? 1 : 0);
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public SecretKey getEncryptionKey() {
+        return encryptionKey;
+    }
+
+    public SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    public JWEEncrypter getEncrypter() {
+        return encrypter;
+    }
+
+    public JWEDecrypter getDecrypter() {
+        return decrypter;
+    }
+
+    public JWSSigner getSigner() {
+        return signer;
+    }
+
+    public JWSVerifier getVerifier() {
+        return verifier;
+    }
+
+    public JweHeaderTemplate getHeaderTemplate(boolean nested, boolean compressed) {
+        return headerTemplates.get(templateIndex(nested, compressed));
+    }
+
+    public List<JweHeaderTemplate> getHeaderTemplates() {
+        return headerTemplates;
+    }
+
+    public Instant getRetireAt() {
+        return retireAt;
+    }
+
+    public boolean isRetired(Instant now) {
+        return retireAt != null && !now.isBefore(retireAt);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.oauth2.service;
+
+/**
+ * Structural checks on a compact JWE that run before any parsing or crypto.
+ * <p>
+ * Tokens issued here use {@code alg=dir}, so a well-formed token has exactly five
+ * Base64URL segments with an empty encrypted key. Anything else can be rejected
+ * without touching the header JSON or the cipher.
+ */
+public final class JweTokenPrecheck {
+
+    // {"alg":"dir","enc":"A256GCM"} header, empty key, 96-bit IV, 1-byte ciphertext, 128-bit tag
+    static final int MIN_TOKEN_LENGTH = 39 + 1 + 1 + 16 + 1 + 2 + 1 + 22;
+
+    private static final boolean[] BASE64URL = new boolean[128];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            BASE64URL[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            BASE64URL[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            BASE64URL[c] = true;
+        }
+        BASE64URL['-'] = true;
+        BASE64URL['_'] = true;
+    }
+
+    private JweTokenPrecheck() {
+    }
+
+    public static boolean isWellFormed(String token, int maxLength) {
+        if (token == null) {
+            return false;
+        }
+        int length = token.length();
+        if (length < MIN_TOKEN_LENGTH || length > maxLength) {
+            return false;
+        }
+
+        int dots = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                int segmentLength = i - segmentStart;
+                // Segment 1 is the encrypted key and must be empty for "dir"; all others must not be
+                if (++dots > 4 || (dots == 2) != (segmentLength == 0)) {
+                    return false;
+                }
+                segmentStart = i + 1;
+            } else if (c >= 128 || !BASE64URL[c]) {
+                return false;
+            }
+        }
+        return dots == 4 && segmentStart < length;
+    }
+}
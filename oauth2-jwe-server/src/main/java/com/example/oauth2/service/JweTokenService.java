@@ -1,79 +1,153 @@
 package com.example.oauth2.service;
 
+import com.example.oauth2.security.TokenDigest;
+import com.example.oauth2.security.TokenPrincipal;
 import com.nimbusds.jose.*;
-import com.nimbusds.jose.crypto.DirectEncrypter;
-import com.nimbusds.jose.crypto.DirectDecrypter;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
-import com.nimbusds.jwt.EncryptedJWT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class JweTokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(JweTokenService.class);
 
-    @Value("${jwe.encryption.key}")
-    private String encryptionKey;
+    private static final int MIN_BATCH_CHUNK = 32;
 
-    @Value("${jwe.signing.key}")
-    private String signingKey;
+    private final JweCryptoRegistry cryptoRegistry;
+    private final TokenClaimsCache claimsCache;
+    private final TokenClaimsCodec claimsCodec;
+    private final TokenRejectionCache rejectionCache;
+    private final RandomIdService randomIdService;
+    private final RevocationIndex revocationIndex;
+    private final TokenEpochIndex tokenEpochIndex;
+    private final int maxTokenLength;
+    private final String tokenFormatValue;
+    private final boolean compress;
+    private final int batchParallelism;
+
+    private TokenFormat tokenFormat;
+
+    private ExecutorService batchExecutor;
+
+    public JweTokenService(JweCryptoRegistry cryptoRegistry,
+                           TokenClaimsCache claimsCache,
+                           TokenClaimsCodec claimsCodec,
+                           TokenRejectionCache rejectionCache,
+                           RandomIdService randomIdService,
+                           RevocationIndex revocationIndex,
+                           TokenEpochIndex tokenEpochIndex,
+                           @Value("${jwe.token.max-length:8192}") int maxTokenLength,
+                           @Value("${jwe.token.format:encrypt-only}") String tokenFormatValue,
+                           @Value("${jwe.token.compress:false}") boolean compress,
+                           @Value("${jwe.batch.parallelism:0}") int batchParallelism) {
+        this.cryptoRegistry = cryptoRegistry;
+        this.claimsCache = claimsCache;
+        this.claimsCodec = claimsCodec;
+        this.rejectionCache = rejectionCache;
+        this.randomIdService = randomIdService;
+        this.revocationIndex = revocationIndex;
+        this.tokenEpochIndex = tokenEpochIndex;
+        this.maxTokenLength = maxTokenLength;
+        this.tokenFormatValue = tokenFormatValue;
+        this.compress = compress;
+        this.batchParallelism = batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    @PostConstruct
+    public void init() {
+        tokenFormat = TokenFormat.fromValue(tokenFormatValue);
+        AtomicInteger threadCount = new AtomicInteger();
+        batchExecutor = Executors.newFixedThreadPool(batchParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "jwe-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Issuing JWE tokens with format: {} (batch parallelism: {})",
+                tokenFormat.getValue(), batchParallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+        }
+    }
+
+    public TokenFormat getTokenFormat() {
+        return tokenFormat;
+    }
 
     public String generateJweToken(Long userId, String username, List<String> roles,
                                    String clientId, List<String> scopes,
                                    LocalDateTime expiresAt) {
+        return generateJweToken(randomIdService.newId(), userId, username, roles, clientId, scopes, expiresAt, 0);
+    }
+
+    /**
+     * Issues a token whose {@code jti} is {@code tokenId}, the ID of its
+     * {@code access_tokens} row, so that revoking the row revokes the token.
+     * {@code tokenEpoch} is the user's current token epoch, see {@link TokenEpochIndex}.
+     */
+    public String generateJweToken(String tokenId, Long userId, String username, List<String> roles,
+                                   String clientId, List<String> scopes,
+                                   LocalDateTime expiresAt, int tokenEpoch) {
         try {
-            // Create JWT claims
-            JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
-                    .subject(username)
-                    .issuer("oauth2-jwe-server")
-                    .audience(clientId)
-                    .expirationTime(Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant()))
-                    .issueTime(new Date())
-                    .notBeforeTime(new Date())
-                    .jwtID(UUID.randomUUID().toString())
-                    .claim("user_id", userId)
-                    .claim("username", username)
-                    .claim("roles", roles)
-                    .claim("client_id", clientId)
-                    .claim("scopes", scopes)
-                    .build();
-
-            // Create signed JWT
-            SignedJWT signedJWT = new SignedJWT(
-                    new JWSHeader(JWSAlgorithm.HS256),
-                    claimsSet
+            // Create JWT claims for the configured claim profile
+            JWTClaimsSet claimsSet = claimsCodec.encode(
+                    tokenId,
+                    userId,
+                    username,
+                    roles,
+                    clientId,
+                    scopes,
+                    new Date(),
+                    Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant()),
+                    tokenEpoch
             );
 
-            // Sign the JWT
-            JWSSigner signer = new MACSigner(signingKey.getBytes());
-            signedJWT.sign(signer);
-
-            // Create JWE header
-            JWEHeader jweHeader = new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A256GCM)
-                    .contentType("JWT")
-                    .build();
+            JweKey key = cryptoRegistry.getActiveKey();
+            boolean nested = tokenFormat == TokenFormat.NESTED;
+            JweHeaderTemplate template = key.getHeaderTemplate(nested, compress);
 
-            // Create encrypted JWT
-            EncryptedJWT encryptedJWT = new EncryptedJWT(jweHeader, claimsSet);
+            byte[] payload;
+            if (nested) {
+                // Sign the claims and encrypt the resulting JWS
+                SignedJWT signedJWT = new SignedJWT(
+                        new JWSHeader.Builder(JWSAlgorithm.HS256).keyID(key.getKeyId()).build(),
+                        claimsSet
+                );
+                signedJWT.sign(key.getSigner());
+                payload = signedJWT.serialize().getBytes(StandardCharsets.UTF_8);
+            } else {
+                // Encrypt the claims directly, AES-GCM authenticates them
+                payload = claimsSet.toString().getBytes(StandardCharsets.UTF_8);
+            }
 
-            // Encrypt the JWT
-            JWEEncrypter encrypter = new DirectEncrypter(encryptionKey.getBytes());
-            encryptedJWT.encrypt(encrypter);
+            // Encrypt with the precomputed header and AAD, no per-token header serialization
+            JWECryptoParts parts = key.getEncrypter().encrypt(template.getHeader(), payload, template.getAad());
 
-            return encryptedJWT.serialize();
+            return serialize(template, parts);
 
         } catch (Exception e) {
             logger.error("Error generating JWE token", e);
@@ -81,111 +155,222 @@ public class JweTokenService {
         }
     }
 
-    public JWTClaimsSet validateAndParseToken(String jweToken) {
+    /**
+     * Mints one token per spec, spread over the batch executor in contiguous chunks.
+     * The result is in the same order as {@code specs}.
+     */
+    public List<String> generateJweTokens(List<TokenSpec> specs) {
+        if (specs.size() < 2 * MIN_BATCH_CHUNK || batchParallelism == 1) {
+            return specs.stream().map(this::generateJweToken).toList();
+        }
+
+        int chunkSize = Math.max(MIN_BATCH_CHUNK, (specs.size() + batchParallelism - 1) / batchParallelism);
+        List<CompletableFuture<List<String>>> chunks = new ArrayList<>();
+        for (int from = 0; from < specs.size(); from += chunkSize) {
+            List<TokenSpec> chunk = specs.subList(from, Math.min(from + chunkSize, specs.size()));
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> chunk.stream().map(this::generateJweToken).toList(), batchExecutor));
+        }
+
+        List<String> tokens = new ArrayList<>(specs.size());
         try {
-            // Parse the encrypted JWT
-            EncryptedJWT encryptedJWT = EncryptedJWT.parse(jweToken);
+            for (CompletableFuture<List<String>> chunk : chunks) {
+                tokens.addAll(chunk.join());
+            }
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to generate JWE token batch", e.getCause());
+        }
+        return tokens;
+    }
 
-            // Decrypt the JWT
-            JWEDecrypter decrypter = new DirectDecrypter(encryptionKey.getBytes());
-            encryptedJWT.decrypt(decrypter);
+    private String generateJweToken(TokenSpec spec) {
+        String tokenId = spec.getTokenId() != null ? spec.getTokenId() : randomIdService.newId();
+        return generateJweToken(tokenId, spec.getUserId(), spec.getUsername(), spec.getRoles(),
+                spec.getClientId(), spec.getScopes(), spec.getExpiresAt(), 0);
+    }
 
-            // Get the claims
-            JWTClaimsSet claimsSet = encryptedJWT.getJWTClaimsSet();
+    /**
+     * Validates the token without throwing: returns its claims, or the reason it was
+     * rejected. Failure results are shared instances.
+     */
+    public TokenValidationResult validate(String jweToken) {
+        // Structural checks first: garbage is rejected before hashing, parsing or decrypting
+        if (!JweTokenPrecheck.isWellFormed(jweToken, maxTokenLength)) {
+            return reject(null, TokenValidationResult.Reason.BAD_FORMAT);
+        }
 
-            // Verify expiration
-            Date expirationTime = claimsSet.getExpirationTime();
-            if (expirationTime != null && expirationTime.before(new Date())) {
-                throw new RuntimeException("Token has expired");
+        // Tokens issued with the keyring start with one of its header templates; only
+        // the kid-less baseline header is parsed, and only while such tokens can live
+        JweHeaderTemplate template = cryptoRegistry.matchHeaderTemplate(jweToken);
+        if (template == null) {
+            return reject(null, TokenValidationResult.Reason.BAD_FORMAT);
+        }
+
+        TokenDigest digest = claimsCache.isEnabled() || rejectionCache.isEnabled() ? TokenDigest.of(jweToken) : null;
+        if (digest != null && rejectionCache.isEnabled()) {
+            TokenValidationResult.Reason rejected = rejectionCache.get(digest);
+            if (rejected != null) {
+                logger.debug("JWE token rejected: {} (cached)", rejected.getDescription());
+                return TokenValidationResult.failure(rejected);
             }
+        }
 
-            // Verify not before
-            Date notBeforeTime = claimsSet.getNotBeforeTime();
-            if (notBeforeTime != null && notBeforeTime.after(new Date())) {
-                throw new RuntimeException("Token not yet valid");
+        JWTClaimsSet claimsSet = digest != null && claimsCache.isEnabled() ? claimsCache.get(digest) : null;
+        boolean cacheHit = claimsSet != null;
+
+        if (!cacheHit) {
+            try {
+                claimsSet = decryptWithTemplate(jweToken, template);
+            } catch (JOSEException | ParseException e) {
+                // The JCA reports a GCM tag mismatch only by throwing AEADBadTagException,
+                // which Nimbus wraps, so each forged token costs an exception; the
+                // rejection cache keeps replays of it from costing another
+                logger.debug("JWE token decryption failed: {}", e.getMessage());
+                claimsSet = null;
+            }
+            if (claimsSet == null) {
+                return reject(digest, TokenValidationResult.Reason.DECRYPT_FAIL);
             }
+        }
 
-            return claimsSet;
+        long now = System.currentTimeMillis();
 
-        } catch (Exception e) {
-            logger.error("Error validating JWE token", e);
-            throw new RuntimeException("Invalid JWE token", e);
+        // Verify expiration
+        Date expirationTime = claimsSet.getExpirationTime();
+        if (expirationTime != null && expirationTime.getTime() < now) {
+            return reject(digest, TokenValidationResult.Reason.EXPIRED);
         }
-    }
 
-    public boolean isTokenValid(String jweToken) {
-        try {
-            validateAndParseToken(jweToken);
-            return true;
-        } catch (Exception e) {
-            logger.debug("Token validation failed: {}", e.getMessage());
-            return false;
+        // Verify not before; not cached as a rejection since the token becomes valid later
+        Date notBeforeTime = claimsSet.getNotBeforeTime();
+        if (notBeforeTime != null && notBeforeTime.getTime() > now) {
+            return reject(null, TokenValidationResult.Reason.NOT_YET_VALID);
         }
-    }
 
-    public String extractUsername(String jweToken) {
-        try {
-            JWTClaimsSet claims = validateAndParseToken(jweToken);
-            return claims.getSubject();
-        } catch (Exception e) {
-            logger.error("Error extracting username from token", e);
-            return null;
+        // Revocation is checked on every call, cached claims included
+        if (revocationIndex.isEnabled() && revocationIndex.isRevoked(claimsSet.getJWTID())) {
+            return reject(digest, TokenValidationResult.Reason.REVOKED);
         }
-    }
 
-    public Long extractUserId(String jweToken) {
-        try {
-            JWTClaimsSet claims = validateAndParseToken(jweToken);
-            return claims.getLongClaim("user_id");
-        } catch (Exception e) {
-            logger.error("Error extracting user ID from token", e);
-            return null;
+        // Tokens issued before the user's last logout carry an older epoch
+        if (tokenEpochIndex.isEnabled()) {
+            Long userId = claimsCodec.readUserId(claimsSet);
+            if (userId != null && claimsCodec.readTokenEpoch(claimsSet) < tokenEpochIndex.currentEpoch(userId)) {
+                return reject(digest, TokenValidationResult.Reason.REVOKED);
+            }
+        }
+
+        if (digest != null && claimsCache.isEnabled() && !cacheHit) {
+            claimsCache.put(digest, claimsSet);
         }
+
+        return TokenValidationResult.valid(claimsSet);
     }
 
-    @SuppressWarnings("unchecked")
-    public List<String> extractRoles(String jweToken) {
-        try {
-            JWTClaimsSet claims = validateAndParseToken(jweToken);
-            return (List<String>) claims.getClaim("roles");
-        } catch (Exception e) {
-            logger.error("Error extracting roles from token", e);
-            return List.of();
+    /**
+     * Throwing variant of {@link #validate(String)} for callers that treat an
+     * invalid token as an error.
+     */
+    public JWTClaimsSet validateAndParseToken(String jweToken) {
+        TokenValidationResult result = validate(jweToken);
+        if (!result.isValid()) {
+            throw new InvalidTokenException("Invalid JWE token: " + result.getReason().getDescription());
         }
+        return result.getClaims();
     }
 
-    @SuppressWarnings("unchecked")
-    public List<String> extractScopes(String jweToken) {
-        try {
-            JWTClaimsSet claims = validateAndParseToken(jweToken);
-            return (List<String>) claims.getClaim("scopes");
-        } catch (Exception e) {
-            logger.error("Error extracting scopes from token", e);
-            return List.of();
+    private TokenValidationResult reject(TokenDigest digest, TokenValidationResult.Reason reason) {
+        if (digest != null && rejectionCache.isEnabled()) {
+            rejectionCache.add(digest, reason);
         }
+        logger.debug("JWE token rejected: {}", reason.getDescription());
+        return TokenValidationResult.failure(reason);
     }
 
-    public String extractClientId(String jweToken) {
-        try {
-            JWTClaimsSet claims = validateAndParseToken(jweToken);
-            return claims.getStringClaim("client_id");
-        } catch (Exception e) {
-            logger.error("Error extracting client ID from token", e);
+    private static String serialize(JweHeaderTemplate template, JWECryptoParts parts) {
+        String iv = parts.getInitializationVector().toString();
+        String cipherText = parts.getCipherText().toString();
+        String authTag = parts.getAuthenticationTag().toString();
+
+        // header.encryptedKey.iv.ciphertext.tag; the encrypted key is empty for "dir"
+        return new StringBuilder(template.getPrefix().length() + iv.length() + cipherText.length() + authTag.length() + 3)
+                .append(template.getPrefix())
+                .append('.')
+                .append(iv)
+                .append('.')
+                .append(cipherText)
+                .append('.')
+                .append(authTag)
+                .toString();
+    }
+
+    /**
+     * Decrypts a token with the key of its header template. Returns {@code null} if
+     * the token fails a check made here; Nimbus still throws for a failed tag or
+     * unparseable claims.
+     */
+    private JWTClaimsSet decryptWithTemplate(String jweToken, JweHeaderTemplate template)
+            throws ParseException, JOSEException {
+        int encryptedKeyStart = template.getPrefix().length();
+        int ivStart = jweToken.indexOf('.', encryptedKeyStart) + 1;
+        int cipherTextStart = ivStart > 0 ? jweToken.indexOf('.', ivStart) + 1 : 0;
+        int authTagStart = cipherTextStart > 0 ? jweToken.indexOf('.', cipherTextStart) + 1 : 0;
+
+        // "dir" tokens have an empty encrypted key and exactly five segments
+        if (ivStart != encryptedKeyStart + 1 || authTagStart == 0 || jweToken.indexOf('.', authTagStart) >= 0) {
             return null;
         }
-    }
 
-    public Date extractExpirationDate(String jweToken) {
-        try {
-            JWTClaimsSet claims = validateAndParseToken(jweToken);
-            return claims.getExpirationTime();
-        } catch (Exception e) {
-            logger.error("Error extracting expiration date from token", e);
+        // The key may have been purged since the template matched
+        JweKey key = cryptoRegistry.findKey(template.getKeyId());
+        if (key == null) {
             return null;
         }
+        byte[] plainText = key.getDecrypter().decrypt(
+                template.getHeader(),
+                null,
+                new Base64URL(jweToken.substring(ivStart, cipherTextStart - 1)),
+                new Base64URL(jweToken.substring(cipherTextStart, authTagStart - 1)),
+                new Base64URL(jweToken.substring(authTagStart)),
+                template.getAad()
+        );
+
+        return readClaims(new String(plainText, StandardCharsets.UTF_8), template.isNested(), key);
+    }
+
+    private JWTClaimsSet readClaims(String payload, boolean nested, JweKey key) throws ParseException, JOSEException {
+        // A nested payload is a JWS that must verify
+        if (nested) {
+            SignedJWT signedJWT = SignedJWT.parse(payload);
+            if (!signedJWT.verify(key.getVerifier())) {
+                return null;
+            }
+            return signedJWT.getJWTClaimsSet();
+        }
+
+        return JWTClaimsSet.parse(payload);
+    }
+
+    public boolean isTokenValid(String jweToken) {
+        return validate(jweToken).isValid();
+    }
+
+    /**
+     * Validates the token and returns its claims as a {@link TokenPrincipal}.
+     * Callers that need several claims should decode once and read the principal.
+     */
+    public TokenPrincipal decode(String jweToken) {
+        return claimsCodec.decode(validateAndParseToken(jweToken));
+    }
+
+    /**
+     * Maps the claims of a valid {@link TokenValidationResult} to a {@link TokenPrincipal}.
+     */
+    public TokenPrincipal toPrincipal(JWTClaimsSet claimsSet) {
+        return claimsCodec.decode(claimsSet);
     }
 
     public String generateRefreshToken() {
-        return UUID.randomUUID().toString().replace("-", "");
+        return randomIdService.newToken();
     }
 }
\ No newline at end of file
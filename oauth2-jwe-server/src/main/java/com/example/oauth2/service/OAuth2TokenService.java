@@ -1,5 +1,6 @@
 package com.example.oauth2.service;
 
+import com.example.oauth2.dto.BulkTokenRequest;
 import com.example.oauth2.dto.TokenRequest;
 import com.example.oauth2.dto.TokenResponse;
 import com.example.oauth2.model.AccessToken;
@@ -7,17 +8,22 @@ import com.example.oauth2.model.Role;
 import com.example.oauth2.model.Usuario;
 import com.example.oauth2.repository.AccessTokenRepository;
 import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.security.TokenDigest;
+import com.example.oauth2.service.ClientRegistry.RegisteredClient;
+import com.example.oauth2.service.RefreshGraceCache.RotatedToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,21 +31,60 @@ public class OAuth2TokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(OAuth2TokenService.class);
 
-    @Autowired
-    private JweTokenService jweTokenService;
-
-    @Autowired
-    private UsuarioRepository usuarioRepository;
-
-    @Autowired
-    private AccessTokenRepository accessTokenRepository;
-
-    @Autowired
-    private PasswordEncoder passwordEncoder;
+    private final JweTokenService jweTokenService;
+    private final UsuarioRepository usuarioRepository;
+    private final AccessTokenRepository accessTokenRepository;
+    private final AccessTokenWriter accessTokenWriter;
+    private final PasswordHashingBulkhead passwordHashingBulkhead;
+    private final VerifiedCredentialCache credentialCache;
+    private final RandomIdService randomIdService;
+    private final RevocationIndex revocationIndex;
+    private final TokenEpochIndex tokenEpochIndex;
+    private final UserCache userCache;
+    private final RefreshGraceCache refreshGraceCache;
+    private final ClientRegistry clientRegistry;
+    private final ClientTokenCache clientTokenCache;
+    private final boolean bulkEnabled;
+    private final int bulkMaxCount;
+    private final int bulkChunkSize;
 
     private static final long ACCESS_TOKEN_VALIDITY_HOURS = 1;
     private static final long REFRESH_TOKEN_VALIDITY_DAYS = 30;
 
+    public OAuth2TokenService(JweTokenService jweTokenService,
+                              UsuarioRepository usuarioRepository,
+                              AccessTokenRepository accessTokenRepository,
+                              AccessTokenWriter accessTokenWriter,
+                              PasswordHashingBulkhead passwordHashingBulkhead,
+                              VerifiedCredentialCache credentialCache,
+                              RandomIdService randomIdService,
+                              RevocationIndex revocationIndex,
+                              TokenEpochIndex tokenEpochIndex,
+                              UserCache userCache,
+                              RefreshGraceCache refreshGraceCache,
+                              ClientRegistry clientRegistry,
+                              ClientTokenCache clientTokenCache,
+                              @Value("${oauth2.bulk.enabled:false}") boolean bulkEnabled,
+                              @Value("${oauth2.bulk.max-count:10000}") int bulkMaxCount,
+                              @Value("${oauth2.bulk.chunk-size:500}") int bulkChunkSize) {
+        this.jweTokenService = jweTokenService;
+        this.usuarioRepository = usuarioRepository;
+        this.accessTokenRepository = accessTokenRepository;
+        this.accessTokenWriter = accessTokenWriter;
+        this.passwordHashingBulkhead = passwordHashingBulkhead;
+        this.credentialCache = credentialCache;
+        this.randomIdService = randomIdService;
+        this.revocationIndex = revocationIndex;
+        this.tokenEpochIndex = tokenEpochIndex;
+        this.userCache = userCache;
+        this.refreshGraceCache = refreshGraceCache;
+        this.clientRegistry = clientRegistry;
+        this.clientTokenCache = clientTokenCache;
+        this.bulkEnabled = bulkEnabled;
+        this.bulkMaxCount = bulkMaxCount;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
     public TokenResponse generateToken(TokenRequest request) {
         logger.info("Generating token for grant_type: {}", request.getGrant_type());
 
@@ -67,8 +112,12 @@ public class OAuth2TokenService {
         }
 
         Usuario user = userOpt.get();
-        if (!passwordEncoder.matches(request.getPassword(), user.getSenha())) {
-            throw new IllegalArgumentException("Invalid credentials");
+        if (!credentialCache.isVerified(user.getLogin(), request.getPassword(), user.getSenha())) {
+            if (!passwordHashingBulkhead.matches(request.getPassword(), user.getSenha())) {
+                throw new IllegalArgumentException("Invalid credentials");
+            }
+            String storedHash = rehashIfNeeded(user, request.getPassword());
+            credentialCache.recordVerified(user.getLogin(), request.getPassword(), storedHash);
         }
 
         if (!user.getAtivo()) {
@@ -78,91 +127,231 @@ public class OAuth2TokenService {
         return createTokenResponse(user, request.getClient_id(), request.getScope());
     }
 
+    /**
+     * Re-encodes a just-verified password whose hash does not use the current cost and
+     * returns the hash now stored. Best effort: the login succeeds either way.
+     */
+    private String rehashIfNeeded(Usuario user, String rawPassword) {
+        String currentHash = user.getSenha();
+        if (!passwordHashingBulkhead.needsRehash(currentHash)) {
+            return currentHash;
+        }
+        try {
+            String newHash = passwordHashingBulkhead.encode(rawPassword);
+            if (usuarioRepository.updatePasswordHash(user.getId(), currentHash, newHash)) {
+                user.setSenha(newHash);
+                logger.info("Rehashed password for user {} with the current cost", user.getLogin());
+                return newHash;
+            }
+        } catch (ServiceOverloadedException e) {
+            logger.debug("Skipping password rehash for user {}: {}", user.getLogin(), e.getMessage());
+        } catch (DataAccessException e) {
+            logger.warn("Failed to store rehashed password for user {}", user.getLogin(), e);
+        }
+        return currentHash;
+    }
+
     private TokenResponse handleRefreshTokenGrant(TokenRequest request) {
         if (request.getRefresh_token() == null) {
             throw new IllegalArgumentException("Refresh token is required");
         }
 
-        // Find the access token by refresh token
-        Optional<AccessToken> tokenOpt = accessTokenRepository.findByRefreshToken(request.getRefresh_token());
-        if (tokenOpt.isEmpty()) {
+        // Retries of a refresh just rotated get the response it produced
+        return refreshGraceCache.rotateOnce(request.getRefresh_token(),
+                () -> rotateRefreshToken(request.getRefresh_token()));
+    }
+
+    private RotatedToken rotateRefreshToken(String refreshToken) {
+        // The old token may still be queued for writing. Flushing returns at once when
+        // nothing is pending, which is the usual case: a refresh token comes back long
+        // after the writer stored it
+        accessTokenWriter.flush();
+
+        // Revoke the old token and store its replacement in one transaction; of two
+        // concurrent refreshes with the same token only one gets a row back
+        AtomicReference<IssuedToken> replacement = new AtomicReference<>();
+        Optional<AccessToken> rotated = accessTokenRepository.rotateRefreshToken(refreshToken,
+                existingToken -> {
+                    Usuario user = loadUser(existingToken.getUsuarioId());
+                    if (!user.getAtivo()) {
+                        throw new IllegalArgumentException("User account is disabled");
+                    }
+
+                    // Refresh tokens issued before the user's last logout are dead too
+                    int epoch = Math.max(tokenEpoch(user), tokenEpochIndex.currentEpoch(user.getId()));
+                    if (existingToken.getTokenEpoch() < epoch) {
+                        throw new IllegalArgumentException("Refresh token has been revoked");
+                    }
+
+                    IssuedToken issued = issueToken(user, existingToken.getClientId(), existingToken.getScopes(), epoch);
+                    replacement.set(issued);
+                    return issued.accessToken();
+                });
+        if (rotated.isEmpty()) {
             throw new IllegalArgumentException("Invalid refresh token");
         }
 
-        AccessToken existingToken = tokenOpt.get();
-        if (existingToken.getRevoked()) {
-            throw new IllegalArgumentException("Refresh token has been revoked");
-        }
+        AccessToken oldToken = rotated.get();
+        revocationIndex.markRevoked(oldToken.getTokenId(), oldToken.getExpiresAt());
 
-        // Get user
-        Optional<Usuario> userOpt = usuarioRepository.findById(existingToken.getUsuarioId());
-        if (userOpt.isEmpty()) {
+        logger.info("Refresh token rotated for user: {}", oldToken.getUsuarioId());
+        AccessToken newToken = replacement.get().accessToken();
+        return new RotatedToken(newToken.getTokenId(), newToken.getUsuarioId(), newToken.getTokenEpoch(),
+                replacement.get().response());
+    }
+
+    /**
+     * Loads a user with roles through the {@link UserCache}.
+     */
+    private Usuario loadUser(Long userId) {
+        if (userId == null) {
             throw new IllegalArgumentException("User not found");
         }
-
-        Usuario user = userOpt.get();
-        if (!user.getAtivo()) {
-            throw new IllegalArgumentException("User account is disabled");
+        Usuario user = userCache.get(userId);
+        if (user == null) {
+            long generation = userCache.generation();
+            user = usuarioRepository.findById(userId)
+                    .orElseThrow(() -> new IllegalArgumentException("User not found"));
+            userCache.put(user, generation);
         }
-
-        // Revoke the old token
-        accessTokenRepository.revokeToken(existingToken.getTokenId());
-
-        // Create new token
-        return createTokenResponse(user, existingToken.getClientId(), existingToken.getScopes());
+        return user;
     }
 
     private TokenResponse handleClientCredentialsGrant(TokenRequest request) {
-        if (request.getClient_id() == null || request.getClient_secret() == null) {
-            throw new IllegalArgumentException("Client credentials are required");
-        }
+        List<String> scopes = parseScopes(request.getScope());
+        clientRegistry.authenticate(request.getClient_id(), request.getClient_secret(), "client_credentials", scopes);
 
-        // For simplicity, we'll create a system user token
-        // In a real implementation, you'd validate client credentials against a client store
-        if (!"oauth2-client".equals(request.getClient_id()) && !"api-client".equals(request.getClient_id())) {
-            throw new IllegalArgumentException("Invalid client credentials");
+        TokenResponse reusable = clientTokenCache.get(request.getClient_id(), scopes);
+        if (reusable != null) {
+            return reusable;
         }
 
         // Create a system token without a specific user
-        String tokenId = UUID.randomUUID().toString();
+        String tokenId = randomIdService.newId();
         String refreshToken = jweTokenService.generateRefreshToken();
         LocalDateTime expiresAt = LocalDateTime.now().plusHours(ACCESS_TOKEN_VALIDITY_HOURS);
-
-        List<String> scopes = parseScopes(request.getScope());
         List<String> roles = List.of("API_CLIENT");
 
         String jweToken = jweTokenService.generateJweToken(
+                tokenId,
                 null, // No specific user for client credentials
                 request.getClient_id(),
                 roles,
                 request.getClient_id(),
                 scopes,
-                expiresAt
+                expiresAt,
+                0
         );
 
         // Save token to database
         AccessToken accessToken = new AccessToken(
                 tokenId,
-                jweToken,
+                TokenDigest.of(jweToken).toBytes(),
                 refreshToken,
                 null, // No user ID for client credentials
                 request.getClient_id(),
                 String.join(",", scopes),
                 expiresAt
         );
-        accessTokenRepository.save(accessToken);
+        accessTokenWriter.write(accessToken);
 
-        return new TokenResponse(
+        TokenResponse response = new TokenResponse(
                 jweToken,
                 "Bearer",
                 ACCESS_TOKEN_VALIDITY_HOURS * 3600,
                 refreshToken,
                 String.join(" ", scopes)
         );
+        clientTokenCache.put(request.getClient_id(), scopes, tokenId, response);
+        return response;
+    }
+
+    /**
+     * Checks and authenticates a bulk issuance request before any response is
+     * streamed, so that invalid requests can still be answered with a regular error.
+     * Returns the authenticated client to pass to {@link #issueBulkClientTokens}.
+     */
+    public RegisteredClient validateBulkRequest(BulkTokenRequest request) {
+        if (!bulkEnabled) {
+            throw new IllegalArgumentException("Bulk issuance is disabled");
+        }
+        RegisteredClient client = clientRegistry.authenticate(request.getClient_id(), request.getClient_secret(),
+                "client_credentials", parseScopes(request.getScope()));
+
+        if (request.getCount() < 1 || request.getCount() > bulkMaxCount) {
+            throw new IllegalArgumentException("Count must be between 1 and " + bulkMaxCount);
+        }
+        return client;
+    }
+
+    /**
+     * Issues {@code count} client_credentials tokens to a client authenticated by
+     * {@link #validateBulkRequest}. Tokens are minted in parallel and persisted with
+     * one JDBC batch per chunk; each chunk is handed to {@code sink} once its rows are
+     * stored.
+     */
+    public int issueBulkClientTokens(BulkTokenRequest request, RegisteredClient client,
+                                     Consumer<List<TokenResponse>> sink) {
+        String clientId = client.clientId();
+        List<String> scopes = parseScopes(request.getScope());
+        List<String> roles = List.of("API_CLIENT");
+
+        int issued = 0;
+        while (issued < request.getCount()) {
+            int chunkSize = Math.min(bulkChunkSize, request.getCount() - issued);
+            LocalDateTime expiresAt = LocalDateTime.now().plusHours(ACCESS_TOKEN_VALIDITY_HOURS);
+
+            List<TokenSpec> specs = new ArrayList<>(chunkSize);
+            for (int i = 0; i < chunkSize; i++) {
+                specs.add(new TokenSpec(randomIdService.newId(), null, clientId, roles, clientId, scopes, expiresAt));
+            }
+            List<String> jweTokens = jweTokenService.generateJweTokens(specs);
+
+            List<AccessToken> rows = new ArrayList<>(chunkSize);
+            List<TokenResponse> responses = new ArrayList<>(chunkSize);
+            for (int i = 0; i < chunkSize; i++) {
+                String jweToken = jweTokens.get(i);
+                String refreshToken = jweTokenService.generateRefreshToken();
+                rows.add(new AccessToken(
+                        specs.get(i).getTokenId(),
+                        TokenDigest.of(jweToken).toBytes(),
+                        refreshToken,
+                        null,
+                        clientId,
+                        String.join(",", scopes),
+                        expiresAt
+                ));
+                responses.add(new TokenResponse(
+                        jweToken,
+                        "Bearer",
+                        ACCESS_TOKEN_VALIDITY_HOURS * 3600,
+                        refreshToken,
+                        String.join(" ", scopes)
+                ));
+            }
+            accessTokenRepository.saveAll(rows);
+
+            sink.accept(responses);
+            issued += chunkSize;
+        }
+
+        logger.info("Bulk issued {} tokens for client: {}", issued, clientId);
+        return issued;
     }
 
     private TokenResponse createTokenResponse(Usuario user, String clientId, String scopeString) {
-        String tokenId = UUID.randomUUID().toString();
+        IssuedToken issued = issueToken(user, clientId, scopeString, tokenEpoch(user));
+        accessTokenWriter.write(issued.accessToken());
+
+        logger.info("Token generated successfully for user: {}", user.getLogin());
+        return issued.response();
+    }
+
+    /**
+     * Mints a token for {@code user} and builds its row, without storing it.
+     */
+    private IssuedToken issueToken(Usuario user, String clientId, String scopeString, int epoch) {
+        String tokenId = randomIdService.newId();
         String refreshToken = jweTokenService.generateRefreshToken();
         LocalDateTime expiresAt = LocalDateTime.now().plusHours(ACCESS_TOKEN_VALIDITY_HOURS);
 
@@ -173,35 +362,39 @@ public class OAuth2TokenService {
         List<String> scopes = parseScopes(scopeString);
 
         String jweToken = jweTokenService.generateJweToken(
+                tokenId,
                 user.getId(),
                 user.getLogin(),
                 roles,
                 clientId != null ? clientId : "default-client",
                 scopes,
-                expiresAt
+                expiresAt,
+                epoch
         );
 
-        // Save token to database
         AccessToken accessToken = new AccessToken(
                 tokenId,
-                jweToken,
+                TokenDigest.of(jweToken).toBytes(),
                 refreshToken,
                 user.getId(),
                 clientId != null ? clientId : "default-client",
                 String.join(",", scopes),
                 expiresAt
         );
-        accessTokenRepository.save(accessToken);
-
-        logger.info("Token generated successfully for user: {}", user.getLogin());
+        accessToken.setTokenEpoch(epoch);
 
-        return new TokenResponse(
+        TokenResponse response = new TokenResponse(
                 jweToken,
                 "Bearer",
                 ACCESS_TOKEN_VALIDITY_HOURS * 3600,
                 refreshToken,
                 String.join(" ", scopes)
         );
+        return new IssuedToken(accessToken, response);
+    }
+
+    private static int tokenEpoch(Usuario user) {
+        return user.getTokenEpoch() != null ? user.getTokenEpoch() : 0;
     }
 
     private List<String> parseScopes(String scopeString) {
@@ -213,22 +406,31 @@ public class OAuth2TokenService {
                 .collect(Collectors.toList());
     }
 
-    public boolean validateToken(String token) {
-        try {
-            return jweTokenService.isTokenValid(token);
-        } catch (Exception e) {
-            logger.error("Token validation failed", e);
-            return false;
-        }
+    public TokenValidationResult validateToken(String token) {
+        return jweTokenService.validate(token);
     }
 
     public void revokeToken(String tokenId) {
-        accessTokenRepository.revokeToken(tokenId);
+        accessTokenWriter.flush();
+        accessTokenRepository.revokeToken(tokenId)
+                .ifPresent(expiresAt -> revocationIndex.markRevoked(tokenId, expiresAt));
         logger.info("Token revoked: {}", tokenId);
     }
 
+    /**
+     * Logs the user out everywhere by bumping their token epoch: one single-row
+     * write, effective at once on this node and after the next epoch refresh elsewhere.
+     */
     public void revokeAllUserTokens(Long userId) {
-        accessTokenRepository.revokeAllUserTokens(userId);
-        logger.info("All tokens revoked for user: {}", userId);
+        int epoch = usuarioRepository.bumpTokenEpoch(userId);
+        if (epoch == 0) {
+            logger.info("Logout for unknown user: {}", userId);
+            return;
+        }
+        tokenEpochIndex.recordEpoch(userId, epoch);
+        logger.info("All tokens revoked for user: {} (token epoch {})", userId, epoch);
+    }
+
+    private record IssuedToken(AccessToken accessToken, TokenResponse response) {
     }
-}
\ No newline at end of file
+}
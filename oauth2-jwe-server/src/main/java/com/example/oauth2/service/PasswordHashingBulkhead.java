@@ -0,0 +1,159 @@
+package com.example.oauth2.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a small dedicated pool instead of on request threads.
+ * <p>
+ * BCrypt is deliberately slow; a login burst hashing on Tomcat threads would leave
+ * none for cheap calls. Here at most {@code oauth2.password-hashing.threads} hashes
+ * run at once and at most {@code queue-capacity} wait. A hash that could not start
+ * within {@code queue-timeout-ms} is dropped unstarted, and a full queue rejects
+ * outright; both surface as {@link ServiceOverloadedException}. The caller waits
+ * for its own hash at most {@code queue-timeout-ms} plus {@code hash-timeout-ms}, then
+ * gets the same exception; a hash already running finishes unobserved.
+ */
+@Component
+public class PasswordHashingBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingBulkhead.class);
+
+    private final int threads;
+    private final int queueCapacity;
+    private final long queueTimeoutMs;
+    private final long hashTimeoutMs;
+    private final long retryAfterSeconds;
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer waitTimer;
+    private Counter shed;
+
+    public PasswordHashingBulkhead(@Value("${oauth2.password-hashing.threads:0}") int threads,
+                                   @Value("${oauth2.password-hashing.queue-capacity:100}") int queueCapacity,
+                                   @Value("${oauth2.password-hashing.queue-timeout-ms:1000}") long queueTimeoutMs,
+                                   @Value("${oauth2.password-hashing.hash-timeout-ms:2000}") long hashTimeoutMs,
+                                   @Value("${oauth2.password-hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                                   PasswordEncoder passwordEncoder,
+                                   MeterRegistry meterRegistry) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.hashTimeoutMs = hashTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        waitTimer = Timer.builder("oauth2.password.hashing.wait").register(meterRegistry);
+        shed = Counter.builder("oauth2.password.hashing.shed").register(meterRegistry);
+        Gauge.builder("oauth2.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("oauth2.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+
+        logger.info("Password hashing bulkhead started (threads: {}, queue capacity: {}, queue timeout: {} ms)",
+                threads, queueCapacity, queueTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Returns {@code true} if {@code encodedPassword} should be rehashed with the
+     * encoder's current settings. Cheap: only inspects the stored hash.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> T run(Supplier<T> task) {
+        long enqueuedAt = System.nanoTime();
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                waitTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > budgetNanos) {
+                    // The caller has been waiting too long already; don't spend a hash on it
+                    throw overloaded("Password hashing queue timeout exceeded");
+                }
+                return task.get();
+            });
+        } catch (RejectedExecutionException e) {
+            throw overloaded("Password hashing queue is full");
+        }
+
+        try {
+            return future.get(queueTimeoutMs + hashTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw overloaded("Password hashing did not complete in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw overloaded("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private ServiceOverloadedException overloaded(String message) {
+        shed.increment();
+        logger.warn("{}, shedding login (queue depth: {})", message, executor.getQueue().size());
+        return new ServiceOverloadedException(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.oauth2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Source of secure random bytes and identifiers on the token issuance path.
+ * <p>
+ * {@link java.util.UUID#randomUUID()} and a default {@link SecureRandom} share one
+ * generator and its lock across every request thread. Here each thread owns a DRBG
+ * instance and draws from a buffered block, refilled {@value #BLOCK_SIZE} bytes at a
+ * time, so concurrent callers never contend. Bytes are wiped from the block as they
+ * are handed out.
+ * <p>
+ * Buffers are per thread, which suits the servlet container's pooled threads; they
+ * are not meant for short-lived virtual threads.
+ */
+@Component
+public class RandomIdService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RandomIdService.class);
+
+    static final int BLOCK_SIZE = 512;
+
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final ThreadLocal<RandomBlock> blocks = ThreadLocal.withInitial(RandomBlock::new);
+
+    private final SecureRandom secureRandom = new BufferedSecureRandom(blocks);
+
+    public void nextBytes(byte[] bytes) {
+        blocks.get().next(bytes);
+    }
+
+    /**
+     * 128-bit random identifier, 22 Base64URL characters. Used for token IDs and {@code jti}.
+     */
+    public String newId() {
+        return randomBase64Url(16);
+    }
+
+    /**
+     * 256-bit random opaque token, 43 Base64URL characters. Used for refresh tokens.
+     */
+    public String newToken() {
+        return randomBase64Url(32);
+    }
+
+    /**
+     * 48-bit random identifier, 8 Base64URL characters, for log correlation only.
+     */
+    public String newTraceId() {
+        return randomBase64Url(6);
+    }
+
+    /**
+     * A {@link SecureRandom} view over the per-thread buffers, for JCA consumers such as
+     * the JWE encrypter drawing GCM IVs when {@code jwe.iv-source=buffered}. Safe to
+     * share across threads.
+     */
+    public SecureRandom secureRandom() {
+        return secureRandom;
+    }
+
+    private String randomBase64Url(int length) {
+        byte[] bytes = new byte[length];
+        blocks.get().next(bytes);
+        return BASE64URL.encodeToString(bytes);
+    }
+
+    private static final class RandomBlock {
+
+        private final SecureRandom random = newThreadRandom();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private int position = BLOCK_SIZE;
+
+        void next(byte[] bytes) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (position == block.length) {
+                    random.nextBytes(block);
+                    position = 0;
+                }
+                int count = Math.min(bytes.length - offset, block.length - position);
+                System.arraycopy(block, position, bytes, offset, count);
+                Arrays.fill(block, position, position + count, (byte) 0);
+                position += count;
+                offset += count;
+            }
+        }
+
+        private static SecureRandom newThreadRandom() {
+            // DRBG instances are independent; NativePRNG instances share one global lock
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                logger.warn("DRBG not available, falling back to default SecureRandom");
+                return new SecureRandom();
+            }
+        }
+    }
+
+    private static final class BufferedSecureRandom extends SecureRandom {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ThreadLocal<RandomBlock> blocks;
+
+        BufferedSecureRandom(ThreadLocal<RandomBlock> blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public void nextBytes(byte[] bytes) {
+            blocks.get().next(bytes);
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            // Seeding is left to the per-thread generators; also called from the Random constructor
+        }
+
+        @Override
+        public void setSeed(byte[] seed) {
+            // See setSeed(long)
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.security.TokenDigest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Grace window for duplicate refresh requests.
+ * <p>
+ * Clients that retry often send the same refresh token several times within
+ * milliseconds. Only the first can rotate it; the others would fail. Here the first
+ * request for a refresh token runs the rotation, duplicates arriving meanwhile wait
+ * for it, and duplicates arriving within {@code oauth2.refresh-grace.window-ms} after
+ * it succeeded get the same {@link TokenResponse} with no database work or crypto.
+ * A failed rotation is shared with the requests waiting on it but not remembered.
+ * <p>
+ * Keys are refresh token digests. Before a response is replayed, the token it carries
+ * is checked against the {@link RevocationIndex} and the {@link TokenEpochIndex}, as
+ * validation would; a revoked token or a logout since the rotation refuses the
+ * duplicate instead.
+ */
+@Component
+public class RefreshGraceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshGraceCache.class);
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxSize;
+    private final long waitTimeoutMs;
+    private final RevocationIndex revocationIndex;
+    private final TokenEpochIndex tokenEpochIndex;
+    private final MeterRegistry meterRegistry;
+
+    // In-flight rotations never expire, so they are never evicted either
+    private BoundedTtlMap<TokenDigest, Entry> entries;
+
+    private Counter replays;
+
+    public RefreshGraceCache(@Value("${oauth2.refresh-grace.enabled:true}") boolean enabled,
+                             @Value("${oauth2.refresh-grace.window-ms:5000}") long windowMs,
+                             @Value("${oauth2.refresh-grace.max-size:10000}") int maxSize,
+                             @Value("${oauth2.refresh-grace.wait-timeout-ms:5000}") long waitTimeoutMs,
+                             RevocationIndex revocationIndex,
+                             TokenEpochIndex tokenEpochIndex,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxSize = maxSize;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.revocationIndex = revocationIndex;
+        this.tokenEpochIndex = tokenEpochIndex;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        replays = Counter.builder("oauth2.refresh.grace.replays").register(meterRegistry);
+        Counter evictions = Counter.builder("oauth2.refresh.grace.evictions").register(meterRegistry);
+        entries = new BoundedTtlMap<>(maxSize, entry -> entry.expiresAtMillis, evictions);
+        Gauge.builder("oauth2.refresh.grace.size", entries, BoundedTtlMap::size).register(meterRegistry);
+
+        logger.info("Refresh grace window {} (window: {} ms, max size: {})",
+                enabled ? "enabled" : "disabled", windowMs, maxSize);
+    }
+
+    /**
+     * Runs {@code rotation} for {@code refreshToken}, unless a rotation of the same
+     * token is in flight or succeeded within the window; then returns its outcome.
+     */
+    public TokenResponse rotateOnce(String refreshToken, Supplier<RotatedToken> rotation) {
+        if (!enabled) {
+            return rotation.get().response();
+        }
+
+        TokenDigest key = TokenDigest.of(refreshToken);
+        Entry existing = entries.get(key);
+        if (existing == null) {
+            Entry created = new Entry();
+            existing = entries.putIfAbsent(key, created);
+            if (existing == null) {
+                return runRotation(key, created, rotation);
+            }
+        }
+
+        RotatedToken rotated = existing.await(waitTimeoutMs);
+        if (isRevoked(rotated)) {
+            throw new IllegalArgumentException("Refresh token has been revoked");
+        }
+        replays.increment();
+        return rotated.response();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${oauth2.refresh-grace.purge-interval-ms:10000}")
+    public void purgeExpired() {
+        int removed = entries.purgeExpired();
+        if (removed > 0) {
+            logger.debug("Purged {} expired entries from refresh grace cache", removed);
+        }
+    }
+
+    private boolean isRevoked(RotatedToken rotated) {
+        if (revocationIndex.isEnabled() && revocationIndex.isRevoked(rotated.tokenId())) {
+            return true;
+        }
+        return tokenEpochIndex.isEnabled() && rotated.userId() != null
+                && rotated.tokenEpoch() < tokenEpochIndex.currentEpoch(rotated.userId());
+    }
+
+    private TokenResponse runRotation(TokenDigest key, Entry entry, Supplier<RotatedToken> rotation) {
+        try {
+            RotatedToken rotated = rotation.get();
+            entry.succeed(rotated, System.currentTimeMillis() + windowMs);
+            return rotated.response();
+        } catch (Throwable e) {
+            // Let the next attempt run the rotation again; an Error too, or the entry
+            // would stay in flight and every retry would time out
+            entries.remove(key, entry);
+            entry.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Outcome of a rotation: the response and the token it carries.
+     */
+    public record RotatedToken(String tokenId, Long userId, int tokenEpoch, TokenResponse response) {
+    }
+
+    private static final class Entry {
+
+        final CompletableFuture<RotatedToken> outcome = new CompletableFuture<>();
+        volatile long expiresAtMillis = Long.MAX_VALUE;
+
+        void succeed(RotatedToken rotated, long expiresAtMillis) {
+            this.expiresAtMillis = expiresAtMillis;
+            outcome.complete(rotated);
+        }
+
+        void fail(Throwable e) {
+            outcome.completeExceptionally(e);
+        }
+
+        RotatedToken await(long timeoutMs) {
+            try {
+                return outcome.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("Refresh failed", e.getCause());
+            } catch (TimeoutException e) {
+                throw new ServiceOverloadedException("Refresh of this token is still in progress", 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceOverloadedException("Interrupted while waiting for refresh", 1);
+            }
+        }
+    }
+}
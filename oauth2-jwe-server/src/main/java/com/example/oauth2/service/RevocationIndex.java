@@ -0,0 +1,120 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.AccessTokenRepository.RevokedToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of revoked token IDs ({@code jti}), so validation can honour
+ * revocation without a database lookup per request.
+ * <p>
+ * The index is loaded at startup and then refreshed by a {@link WatermarkPoller} on
+ * {@code revoked_at}. Entries are only dropped once the token
+ * itself has expired. Membership checks are a single lock-free map lookup.
+ */
+@Component
+public class RevocationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationIndex.class);
+
+    private final boolean enabled;
+    private final long overlapMs;
+    private final AccessTokenRepository accessTokenRepository;
+    private final MeterRegistry meterRegistry;
+
+    // tokenId -> token expiry in epoch millis
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private WatermarkPoller<RevokedToken> poller;
+
+    private Counter hits;
+
+    public RevocationIndex(@Value("${jwe.revocation.enabled:true}") boolean enabled,
+                           @Value("${jwe.revocation.overlap-ms:5000}") long overlapMs,
+                           AccessTokenRepository accessTokenRepository,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.overlapMs = overlapMs;
+        this.accessTokenRepository = accessTokenRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        poller = new WatermarkPoller<>("Revocation index", overlapMs, RevokedToken::revokedAt);
+        hits = Counter.builder("jwe.revocation.index.hits").register(meterRegistry);
+        Gauge.builder("jwe.revocation.index.size", revoked, Map::size).register(meterRegistry);
+        Gauge.builder("jwe.revocation.index.staleness", poller, WatermarkPoller::stalenessSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        if (enabled) {
+            refresh();
+            logger.info("Revocation index loaded with {} revoked token(s)", revoked.size());
+        } else {
+            logger.info("Revocation index disabled");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !revoked.containsKey(tokenId)) {
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Adds a token revoked by this node without waiting for the next poll.
+     */
+    public void markRevoked(String tokenId, LocalDateTime expiresAt) {
+        if (enabled) {
+            revoked.put(tokenId, toEpochMillis(expiresAt));
+        }
+    }
+
+    /**
+     * Pulls revocations since the watermark. Local revokes are added through
+     * {@link #markRevoked} instead, so this node sees them immediately.
+     */
+    @Scheduled(fixedDelayString = "${jwe.revocation.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        boolean refreshed = poller.poll(accessTokenRepository::findRevokedSince, rows -> rows.forEach(
+                row -> revoked.put(row.tokenId(), toEpochMillis(row.expiresAt()))));
+        if (refreshed) {
+            purgeExpired(System.currentTimeMillis());
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void purgeExpired(long now) {
+        revoked.values().removeIf(expiresAtMillis -> expiresAtMillis <= now);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
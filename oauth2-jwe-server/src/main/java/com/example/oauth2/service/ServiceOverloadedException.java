@@ -0,0 +1,20 @@
+package com.example.oauth2.service;
+
+/**
+ * Thrown when work is shed because a bounded resource is saturated. Mapped to
+ * {@code 503 Service Unavailable} with a {@code Retry-After} header. Carries no stack
+ * trace: under overload it is thrown for every request over the limit.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.security.TokenDigest;
+import com.nimbusds.jwt.JWTClaimsSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of decrypted token claims, keyed by the SHA-256 digest of the
+ * compact token.
+ * <p>
+ * Entries live until the token's own {@code exp} and are purged periodically once
+ * expired. When the cache is full, the entry closest to expiry among a small
+ * sample is evicted. Callers must still run their time-based checks on the
+ * returned claims.
+ */
+@Component
+public class TokenClaimsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenClaimsCache.class);
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final MeterRegistry meterRegistry;
+
+    private BoundedTtlMap<TokenDigest, Entry> entries;
+
+    private Counter hits;
+    private Counter misses;
+
+    public TokenClaimsCache(@Value("${jwe.claims-cache.enabled:true}") boolean enabled,
+                            @Value("${jwe.claims-cache.max-size:10000}") int maxSize,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("jwe.claims.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("jwe.claims.cache.requests").tag("result", "miss").register(meterRegistry);
+        Counter evictions = Counter.builder("jwe.claims.cache.evictions").register(meterRegistry);
+        entries = new BoundedTtlMap<>(maxSize, Entry::expiresAtMillis, evictions);
+        Gauge.builder("jwe.claims.cache.size", entries, BoundedTtlMap::size).register(meterRegistry);
+
+        logger.info("Token claims cache {} (max size: {})", enabled ? "enabled" : "disabled", maxSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public JWTClaimsSet get(TokenDigest digest) {
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims;
+    }
+
+    public void put(TokenDigest digest, JWTClaimsSet claims) {
+        if (claims.getExpirationTime() == null) {
+            return;
+        }
+        long expiresAtMillis = claims.getExpirationTime().getTime();
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        entries.put(digest, new Entry(claims, expiresAtMillis));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwe.claims-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = entries.purgeExpired();
+        if (removed > 0) {
+            logger.debug("Purged {} expired entries from token claims cache", removed);
+        }
+    }
+
+    private record Entry(JWTClaimsSet claims, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.security.TokenPrincipal;
+import com.nimbusds.jwt.JWTClaimsSet;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps token data to JWT claims and back, for the configured claim profile.
+ * <ul>
+ *     <li>{@code standard}: registered claims plus {@code user_id}, {@code username},
+ *     {@code client_id}, {@code roles} and {@code scopes} as string lists.</li>
+ *     <li>{@code compact}: only {@code sub}, {@code aud}, {@code exp}, {@code iat},
+ *     {@code jti} and {@code uid}; roles and scopes are bitsets ({@code rb}, {@code sb})
+ *     against the code lists below, with unknown values kept verbatim in
+ *     {@code rx}/{@code sx}.</li>
+ * </ul>
+ * The bit position of a role or scope is its index in {@code jwe.token.role-codes}
+ * / {@code jwe.token.scope-codes}, so those lists are append-only while tokens
+ * issued with them are still alive. Decoding accepts both profiles.
+ */
+@Component
+public class TokenClaimsCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenClaimsCodec.class);
+
+    static final String ISSUER = "oauth2-jwe-server";
+
+    private static final int MAX_CODES = Long.SIZE - 1;
+    private static final int MAX_INTERNED_BITSETS = 1024;
+
+    private static final String EPOCH_CLAIM = "ep";
+
+    private final String claimsProfile;
+    private final List<String> roleCodes;
+    private final List<String> scopeCodes;
+
+    private boolean compact;
+    private Map<String, Integer> roleBits;
+    private Map<String, Integer> scopeBits;
+
+    private final ConcurrentHashMap<Long, List<String>> decodedRoles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, List<String>> decodedScopes = new ConcurrentHashMap<>();
+
+    public TokenClaimsCodec(@Value("${jwe.token.claims:standard}") String claimsProfile,
+                            @Value("${jwe.token.role-codes:ADMIN,USER,API_READ,API_WRITE,API_CLIENT}") List<String> roleCodes,
+                            @Value("${jwe.token.scope-codes:read,write,admin}") List<String> scopeCodes) {
+        this.claimsProfile = claimsProfile;
+        this.roleCodes = roleCodes;
+        this.scopeCodes = scopeCodes;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!"standard".equalsIgnoreCase(claimsProfile) && !"compact".equalsIgnoreCase(claimsProfile)) {
+            throw new IllegalArgumentException("Unsupported claims profile: " + claimsProfile);
+        }
+        compact = "compact".equalsIgnoreCase(claimsProfile);
+        roleBits = indexCodes(roleCodes);
+        scopeBits = indexCodes(scopeCodes);
+
+        logger.info("Token claims profile: {} ({} role codes, {} scope codes)",
+                compact ? "compact" : "standard", roleBits.size(), scopeBits.size());
+    }
+
+    private static Map<String, Integer> indexCodes(List<String> codes) {
+        if (codes.size() > MAX_CODES) {
+            throw new IllegalArgumentException("At most " + MAX_CODES + " codes are supported, got " + codes.size());
+        }
+        Map<String, Integer> bits = new HashMap<>();
+        for (int i = 0; i < codes.size(); i++) {
+            bits.put(codes.get(i).trim(), i);
+        }
+        return Map.copyOf(bits);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public JWTClaimsSet encode(String tokenId, Long userId, String username, List<String> roles,
+                               String clientId, List<String> scopes, Date issuedAt, Date expiresAt,
+                               int tokenEpoch) {
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder()
+                .subject(username)
+                .audience(clientId)
+                .expirationTime(expiresAt)
+                .issueTime(issuedAt)
+                .jwtID(tokenId);
+
+        // Epoch 0 is implied when the claim is absent
+        if (tokenEpoch > 0) {
+            builder.claim(EPOCH_CLAIM, tokenEpoch);
+        }
+
+        if (!compact) {
+            return builder
+                    .issuer(ISSUER)
+                    .notBeforeTime(issuedAt)
+                    .claim("user_id", userId)
+                    .claim("username", username)
+                    .claim("roles", roles)
+                    .claim("client_id", clientId)
+                    .claim("scopes", scopes)
+                    .build();
+        }
+
+        if (userId != null) {
+            builder.claim("uid", userId);
+        }
+        putBitset(builder, "rb", "rx", roles, roleBits);
+        putBitset(builder, "sb", "sx", scopes, scopeBits);
+        return builder.build();
+    }
+
+    private static void putBitset(JWTClaimsSet.Builder builder, String bitsClaim, String extraClaim,
+                                  List<String> values, Map<String, Integer> bits) {
+        long bitset = 0L;
+        List<String> extra = null;
+        for (String value : values) {
+            Integer bit = bits.get(value);
+            if (bit != null) {
+                bitset |= 1L << bit;
+            } else {
+                if (extra == null) {
+                    extra = new ArrayList<>();
+                }
+                extra.add(value);
+            }
+        }
+        builder.claim(bitsClaim, bitset);
+        if (extra != null) {
+            builder.claim(extraClaim, extra);
+        }
+    }
+
+    /**
+     * User ID of the token in either profile, {@code null} for client tokens.
+     */
+    public Long readUserId(JWTClaimsSet claims) {
+        Object userId = claims.getClaim("uid");
+        if (userId == null) {
+            userId = claims.getClaim("user_id");
+        }
+        return userId instanceof Number number ? number.longValue() : null;
+    }
+
+    public int readTokenEpoch(JWTClaimsSet claims) {
+        return claims.getClaim(EPOCH_CLAIM) instanceof Number number ? number.intValue() : 0;
+    }
+
+    public TokenPrincipal decode(JWTClaimsSet claims) {
+        if (claims.getClaim("rb") == null && claims.getClaim("sb") == null) {
+            return TokenPrincipal.fromClaims(claims);
+        }
+
+        try {
+            List<String> audience = claims.getAudience();
+            return new TokenPrincipal(
+                    claims.getJWTID(),
+                    claims.getLongClaim("uid"),
+                    claims.getSubject(),
+                    audience.isEmpty() ? null : audience.get(0),
+                    readBitset(claims, "rb", "rx", roleCodes, decodedRoles),
+                    readBitset(claims, "sb", "sx", scopeCodes, decodedScopes),
+                    claims.getIssueTime(),
+                    claims.getExpirationTime()
+            );
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Malformed token claims", e);
+        }
+    }
+
+    private static List<String> readBitset(JWTClaimsSet claims, String bitsClaim, String extraClaim,
+                                           List<String> codes, ConcurrentHashMap<Long, List<String>> interned)
+            throws ParseException {
+        Long bitset = claims.getLongClaim(bitsClaim);
+        List<String> known = bitset == null ? List.of() : interned.get(bitset);
+        if (known == null) {
+            known = expand(bitset, codes);
+            if (interned.size() < MAX_INTERNED_BITSETS) {
+                interned.putIfAbsent(bitset, known);
+            }
+        }
+
+        List<String> extra = claims.getStringListClaim(extraClaim);
+        if (extra == null || extra.isEmpty()) {
+            return known;
+        }
+        List<String> values = new ArrayList<>(known);
+        values.addAll(extra);
+        return values;
+    }
+
+    private static List<String> expand(long bitset, List<String> codes) {
+        List<String> values = new ArrayList<>(Long.bitCount(bitset));
+        for (int bit = 0; bit < codes.size(); bit++) {
+            if ((bitset & (1L << bit)) != 0) {
+                values.add(codes.get(bit).trim());
+            }
+        }
+        return List.copyOf(values);
+    }
+}
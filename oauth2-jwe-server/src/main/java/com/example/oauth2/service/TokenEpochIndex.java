@@ -0,0 +1,126 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.repository.UsuarioRepository.TokenEpoch;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached per-user token epochs. Logging out bumps the user's epoch; a token whose
+ * {@code ep} claim is below the current epoch of its user is rejected.
+ * <p>
+ * Only users with a non-zero epoch are held. The map is loaded at startup and
+ * refreshed by a {@link WatermarkPoller} on {@code token_epoch_changed_at}, like
+ * {@link RevocationIndex}. Epochs only ever grow, so updates keep the larger value.
+ * <p>
+ * An epoch is dropped {@code jwe.token-epoch.retention-ms} after it changed: by then
+ * every token issued before the bump has expired, so forgetting it changes no outcome.
+ * Users that were deleted drop out the same way.
+ */
+@Component
+public class TokenEpochIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenEpochIndex.class);
+
+    private final boolean enabled;
+    private final long overlapMs;
+    private final long retentionMs;
+    private final UsuarioRepository usuarioRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, Epoch> epochs = new ConcurrentHashMap<>();
+
+    private WatermarkPoller<TokenEpoch> poller;
+
+    public TokenEpochIndex(@Value("${jwe.token-epoch.enabled:true}") boolean enabled,
+                           @Value("${jwe.token-epoch.overlap-ms:5000}") long overlapMs,
+                           @Value("${jwe.token-epoch.retention-ms:3600000}") long retentionMs,
+                           UsuarioRepository usuarioRepository,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.overlapMs = overlapMs;
+        this.retentionMs = retentionMs;
+        this.usuarioRepository = usuarioRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        poller = new WatermarkPoller<>("Token epoch index", overlapMs, TokenEpoch::changedAt);
+        Gauge.builder("jwe.token.epoch.index.size", epochs, Map::size).register(meterRegistry);
+        Gauge.builder("jwe.token.epoch.index.staleness", poller, WatermarkPoller::stalenessSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        if (enabled) {
+            refresh();
+            logger.info("Token epoch index loaded for {} user(s)", epochs.size());
+        } else {
+            logger.info("Token epoch index disabled");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int currentEpoch(Long userId) {
+        Epoch epoch = epochs.get(userId);
+        return epoch != null ? epoch.epoch() : 0;
+    }
+
+    /**
+     * Records an epoch bumped by this node without waiting for the next poll.
+     */
+    public void recordEpoch(Long userId, int epoch) {
+        if (enabled && epoch > 0) {
+            epochs.merge(userId, new Epoch(epoch, System.currentTimeMillis()), Epoch::later);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwe.token-epoch.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        boolean refreshed = poller.poll(usuarioRepository::findTokenEpochsChangedSince, rows -> rows.forEach(
+                row -> epochs.merge(row.userId(), new Epoch(row.epoch(), toEpochMillis(row.changedAt())),
+                        Epoch::later)));
+        if (refreshed) {
+            purgeExpired(System.currentTimeMillis());
+        }
+    }
+
+    public int size() {
+        return epochs.size();
+    }
+
+    private void purgeExpired(long now) {
+        epochs.values().removeIf(epoch -> epoch.changedAtMillis() + retentionMs <= now);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Epoch(int epoch, long changedAtMillis) {
+
+        Epoch later(Epoch other) {
+            if (other.epoch != epoch) {
+                return other.epoch > epoch ? other : this;
+            }
+            return other.changedAtMillis > changedAtMillis ? other : this;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.oauth2.service;
+
+/**
+ * Wire format of issued access tokens.
+ * <ul>
+ *     <li>{@link #ENCRYPT_ONLY}: the claims are the JWE payload; AES-GCM already
+ *     authenticates them, so no JWS is computed.</li>
+ *     <li>{@link #NESTED}: the claims are signed as an HS256 JWS which is then
+ *     encrypted as the JWE payload ({@code cty=JWT}); the signature is verified
+ *     on decode.</li>
+ * </ul>
+ */
+public enum TokenFormat {
+
+    ENCRYPT_ONLY("encrypt-only"),
+    NESTED("nested");
+
+    private final String value;
+
+    TokenFormat(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static TokenFormat fromValue(String value) {
+        for (TokenFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported token format: " + value);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.security.TokenDigest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded negative cache of recently rejected tokens, keyed by token digest.
+ * <p>
+ * A token that failed decryption or was expired fails the same way on replay, so
+ * repeats are rejected without another decrypt attempt. Entries only live for
+ * {@code jwe.rejection-cache.ttl-ms}, which bounds how long a token signed with a
+ * key rotated in elsewhere stays rejected on this node.
+ */
+@Component
+public class TokenRejectionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRejectionCache.class);
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlMs;
+    private final MeterRegistry meterRegistry;
+
+    private BoundedTtlMap<TokenDigest, Entry> entries;
+
+    private Counter hits;
+
+    public TokenRejectionCache(@Value("${jwe.rejection-cache.enabled:true}") boolean enabled,
+                               @Value("${jwe.rejection-cache.max-size:10000}") int maxSize,
+                               @Value("${jwe.rejection-cache.ttl-ms:60000}") long ttlMs,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("jwe.rejection.cache.hits").register(meterRegistry);
+        Counter evictions = Counter.builder("jwe.rejection.cache.evictions").register(meterRegistry);
+        entries = new BoundedTtlMap<>(maxSize, Entry::expiresAtMillis, evictions);
+        Gauge.builder("jwe.rejection.cache.size", entries, BoundedTtlMap::size).register(meterRegistry);
+
+        logger.info("Token rejection cache {} (max size: {}, ttl: {} ms)",
+                enabled ? "enabled" : "disabled", maxSize, ttlMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns why the token was rejected, or {@code null} if it was not rejected recently.
+     */
+    public TokenValidationResult.Reason get(TokenDigest digest) {
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            return null;
+        }
+        hits.increment();
+        return entry.reason;
+    }
+
+    public void add(TokenDigest digest, TokenValidationResult.Reason reason) {
+        entries.put(digest, new Entry(reason, System.currentTimeMillis() + ttlMs));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwe.rejection-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = entries.purgeExpired();
+        if (removed > 0) {
+            logger.debug("Purged {} expired entries from token rejection cache", removed);
+        }
+    }
+
+    private record Entry(TokenValidationResult.Reason reason, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.oauth2.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Input of one token in a batch minting call, see {@link JweTokenService#generateJweTokens(List)}.
+ */
+public final class TokenSpec {
+
+    private final String tokenId;
+    private final Long userId;
+    private final String username;
+    private final List<String> roles;
+    private final String clientId;
+    private final List<String> scopes;
+    private final LocalDateTime expiresAt;
+
+    /**
+     * @param tokenId the {@code jti} of the token, or {@code null} to generate one
+     */
+    public TokenSpec(String tokenId, Long userId, String username, List<String> roles,
+                     String clientId, List<String> scopes, LocalDateTime expiresAt) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.username = username;
+        this.roles = roles;
+        this.clientId = clientId;
+        this.scopes = scopes;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public List<String> getScopes() {
+        return scopes;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.oauth2.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * Outcome of validating a JWE token: the claims of a valid token, or the reason it
+ * was rejected. Failure results are shared constants, so rejecting a token
+ * allocates nothing.
+ */
+public final class TokenValidationResult {
+
+    public enum Reason {
+        BAD_FORMAT("malformed"),
+        DECRYPT_FAIL("decryption failed"),
+        EXPIRED("expired"),
+        NOT_YET_VALID("not yet valid"),
+        REVOKED("revoked");
+
+        private final String description;
+        private final TokenValidationResult result;
+
+        Reason(String description) {
+            this.description = description;
+            this.result = new TokenValidationResult(null, this);
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final JWTClaimsSet claims;
+    private final Reason reason;
+
+    private TokenValidationResult(JWTClaimsSet claims, Reason reason) {
+        this.claims = claims;
+        this.reason = reason;
+    }
+
+    public static TokenValidationResult valid(JWTClaimsSet claims) {
+        return new TokenValidationResult(claims, null);
+    }
+
+    public static TokenValidationResult failure(Reason reason) {
+        return reason.result;
+    }
+
+    public boolean isValid() {
+        return reason == null;
+    }
+
+    /**
+     * Claims of a valid token, {@code null} otherwise.
+     */
+    public JWTClaimsSet getClaims() {
+        return claims;
+    }
+
+    /**
+     * Why the token was rejected, {@code null} if it is valid.
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "TokenValidationResult{valid}" : "TokenValidationResult{" + reason + "}";
+    }
+}
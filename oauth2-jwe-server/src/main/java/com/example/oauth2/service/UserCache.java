@@ -0,0 +1,126 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.model.Usuario;
+import com.example.oauth2.repository.UsuarioChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of users with their roles, keyed by user ID, for the refresh
+ * grant.
+ * <p>
+ * Loading a user costs two queries (the row and its roles). Entries live for
+ * {@code oauth2.user-cache.ttl-ms}; every write through {@code UsuarioRepository}
+ * drops the user's entry via a {@link UsuarioChangedEvent}, so changes made on this
+ * node apply at once and changes made elsewhere within the TTL. Token epochs are not
+ * taken from here: callers check the {@link TokenEpochIndex} as well.
+ * <p>
+ * Loads are tagged with {@link #generation()} taken before the query; a load that
+ * raced with an invalidation is not cached.
+ */
+@Component
+public class UserCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCache.class);
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlMs;
+    private final MeterRegistry meterRegistry;
+
+    private BoundedTtlMap<Long, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+
+    public UserCache(@Value("${oauth2.user-cache.enabled:true}") boolean enabled,
+                     @Value("${oauth2.user-cache.max-size:10000}") int maxSize,
+                     @Value("${oauth2.user-cache.ttl-ms:30000}") long ttlMs,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("oauth2.user.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("oauth2.user.cache.requests").tag("result", "miss").register(meterRegistry);
+        Counter evictions = Counter.builder("oauth2.user.cache.evictions").register(meterRegistry);
+        entries = new BoundedTtlMap<>(maxSize, Entry::expiresAtMillis, evictions);
+        Gauge.builder("oauth2.user.cache.size", entries, BoundedTtlMap::size).register(meterRegistry);
+
+        logger.info("User cache {} (max size: {}, ttl: {} ms)", enabled ? "enabled" : "disabled", maxSize, ttlMs);
+    }
+
+    public Usuario get(Long userId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.user;
+    }
+
+    /**
+     * Current invalidation generation; take it before loading a user and pass it to
+     * {@link #put}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(Usuario user, long loadedAtGeneration) {
+        if (!enabled || user.getId() == null) {
+            return;
+        }
+        entries.put(user.getId(), new Entry(user, System.currentTimeMillis() + ttlMs));
+        if (generation.get() != loadedAtGeneration) {
+            // Invalidated while loading: the copy may predate the write
+            entries.remove(user.getId());
+        }
+    }
+
+    public void invalidate(Long userId) {
+        generation.incrementAndGet();
+        if (userId != null) {
+            entries.remove(userId);
+        }
+    }
+
+    @EventListener
+    public void onUsuarioChanged(UsuarioChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${oauth2.user-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = entries.purgeExpired();
+        if (removed > 0) {
+            logger.debug("Purged {} expired entries from user cache", removed);
+        }
+    }
+
+    private record Entry(Usuario user, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.oauth2.service;
+
+import com.example.oauth2.repository.UsuarioChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Short-lived cache of recently verified password grant credentials, keyed by login.
+ * <p>
+ * Service accounts log in with the same password many times a minute and each login
+ * pays a full BCrypt comparison. A successful comparison is remembered here for
+ * {@code oauth2.credential-cache.ttl-ms}, so repeats skip BCrypt. Only an HMAC of the
+ * password is kept, under a key generated at startup and never persisted, along with
+ * the stored BCrypt hash it was verified against: a password changed through any path
+ * no longer matches. Only the {@link UsuarioChangedEvent}s that carry a login, those
+ * published by {@code UsuarioRepository.save}, also drop the login's entry; writes
+ * that publish just the user ID are left to the hash comparison.
+ * <p>
+ * Client secrets checked by {@link ClientRegistry} are kept in a separate map, so a
+ * login can never vouch for a client of the same name. User entries are disabled by
+ * default; client entries ({@code oauth2.credential-cache.clients-enabled}) are on,
+ * since every client_credentials grant would otherwise pay BCrypt. Hits, misses,
+ * evictions and size are reported per map with a {@code kind} tag of {@code user} or
+ * {@code client}.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedCredentialCache.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final boolean clientsEnabled;
+    private final int maxSize;
+    private final long ttlMs;
+    private final RandomIdService randomIdService;
+    private final MeterRegistry meterRegistry;
+
+    private Partition users;
+    private Partition clients;
+
+    private ThreadLocal<Mac> macs;
+
+    public VerifiedCredentialCache(@Value("${oauth2.credential-cache.enabled:false}") boolean enabled,
+                                   @Value("${oauth2.credential-cache.clients-enabled:true}") boolean clientsEnabled,
+                                   @Value("${oauth2.credential-cache.max-size:1000}") int maxSize,
+                                   @Value("${oauth2.credential-cache.ttl-ms:30000}") long ttlMs,
+                                   RandomIdService randomIdService,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.clientsEnabled = clientsEnabled;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.randomIdService = randomIdService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        byte[] key = new byte[32];
+        randomIdService.nextBytes(key);
+        SecretKeySpec macKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        macs = ThreadLocal.withInitial(() -> newMac(macKey));
+
+        users = createPartition("user");
+        clients = createPartition("client");
+
+        logger.info("Verified credential cache {} (max size: {}, ttl: {} ms)",
+                enabled ? "enabled" : "disabled", maxSize, ttlMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns {@code true} if {@code password} was verified against {@code storedHash}
+     * for {@code login} within the TTL. A {@code false} result means BCrypt must run.
+     */
+    public boolean isVerified(String login, String password, String storedHash) {
+        return enabled && lookup(users, login, password, storedHash);
+    }
+
+    /**
+     * Records that {@code password} matched {@code storedHash}. Call only after BCrypt
+     * accepted it.
+     */
+    public void recordVerified(String login, String password, String storedHash) {
+        if (enabled) {
+            record(users, login, password, storedHash);
+        }
+    }
+
+    /**
+     * Like {@link #isVerified}, for a client secret.
+     */
+    public boolean isClientVerified(String clientId, String secret, String storedHash) {
+        return clientsEnabled && lookup(clients, clientId, secret, storedHash);
+    }
+
+    public void recordClientVerified(String clientId, String secret, String storedHash) {
+        if (clientsEnabled) {
+            record(clients, clientId, secret, storedHash);
+        }
+    }
+
+    private boolean lookup(Partition partition, String login, String password, String storedHash) {
+        Entry entry = partition.entries.get(login);
+        if (entry == null) {
+            partition.misses.increment();
+            return false;
+        }
+        if (!entry.storedHash.equals(storedHash) || !MessageDigest.isEqual(entry.mac, mac(login, password))) {
+            partition.misses.increment();
+            return false;
+        }
+        partition.hits.increment();
+        return true;
+    }
+
+    private void record(Partition partition, String login, String password, String storedHash) {
+        partition.entries.put(login, new Entry(mac(login, password), storedHash, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Drops the user entry of {@code login}. Client entries are left alone: they are
+     * checked against the registry's current secret hash on every lookup.
+     */
+    public void invalidate(String login) {
+        if (login != null) {
+            users.entries.remove(login);
+        }
+    }
+
+    /**
+     * Drops the entry of the changed user; events without a login are ignored.
+     */
+    @EventListener
+    public void onUsuarioChanged(UsuarioChangedEvent event) {
+        invalidate(event.login());
+    }
+
+    /**
+     * Number of user entries.
+     */
+    public int size() {
+        return users.entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${oauth2.credential-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = users.entries.purgeExpired() + clients.entries.purgeExpired();
+        if (removed > 0) {
+            logger.debug("Purged {} expired entries from verified credential cache", removed);
+        }
+    }
+
+    private byte[] mac(String login, String password) {
+        // Bind the password to its login so an entry can't vouch for another account
+        Mac mac = macs.get();
+        mac.update(login.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Partition createPartition(String kind) {
+        Counter evictions = Counter.builder("oauth2.credential.cache.evictions").tag("kind", kind).register(meterRegistry);
+        BoundedTtlMap<String, Entry> entries = new BoundedTtlMap<>(maxSize, Entry::expiresAtMillis, evictions);
+        Gauge.builder("oauth2.credential.cache.size", entries, BoundedTtlMap::size).tag("kind", kind).register(meterRegistry);
+        return new Partition(entries,
+                Counter.builder("oauth2.credential.cache.hits").tag("kind", kind).register(meterRegistry),
+                Counter.builder("oauth2.credential.cache.misses").tag("kind", kind).register(meterRegistry));
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " not available", e);
+        }
+    }
+
+    private record Entry(byte[] mac, String storedHash, long expiresAtMillis) {
+    }
+
+    private record Partition(BoundedTtlMap<String, Entry> entries, Counter hits, Counter misses) {
+    }
+}
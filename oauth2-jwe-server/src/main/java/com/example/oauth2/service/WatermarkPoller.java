@@ -0,0 +1,77 @@
+package com.example.oauth2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Incremental poll of a table by a change timestamp, the refresh loop behind the
+ * in-memory indexes of this package.
+ * <p>
+ * Each poll asks for rows changed at or after the highest timestamp seen so far
+ * minus {@code overlapMs}, so rows from transactions that committed out of order are
+ * read again rather than missed; appliers must be idempotent. The first poll passes
+ * {@code null}, meaning everything. A failed poll is logged and leaves the watermark
+ * where it was, and {@link #stalenessSeconds()} reports how long ago the last
+ * successful one was.
+ */
+public final class WatermarkPoller<R> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatermarkPoller.class);
+
+    private final String name;
+    private final long overlapMs;
+    private final Function<R, LocalDateTime> changedAt;
+
+    private volatile LocalDateTime watermark;
+    private volatile long lastRefreshMillis;
+
+    /**
+     * @param name      what is polled, for log messages
+     * @param changedAt reads the change timestamp of a row
+     */
+    public WatermarkPoller(String name, long overlapMs, Function<R, LocalDateTime> changedAt) {
+        this.name = name;
+        this.overlapMs = overlapMs;
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * Runs {@code query} from the watermark, hands the rows to {@code apply} and
+     * advances the watermark. Returns {@code false} if the database could not be read.
+     */
+    public synchronized boolean poll(Function<LocalDateTime, List<R>> query, Consumer<List<R>> apply) {
+        try {
+            LocalDateTime since = watermark != null ? watermark.minus(Duration.ofMillis(overlapMs)) : null;
+            List<R> rows = query.apply(since);
+            apply.accept(rows);
+            for (R row : rows) {
+                LocalDateTime rowChangedAt = changedAt.apply(row);
+                if (watermark == null || rowChangedAt.isAfter(watermark)) {
+                    watermark = rowChangedAt;
+                }
+            }
+            lastRefreshMillis = System.currentTimeMillis();
+            return true;
+
+        } catch (DataAccessException e) {
+            logger.warn("{} refresh failed, {} s since last refresh: {}",
+                    name, (long) stalenessSeconds(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Seconds since the last successful poll, {@code NaN} before the first.
+     */
+    public double stalenessSeconds() {
+        long last = lastRefreshMillis;
+        return last == 0 ? Double.NaN : (System.currentTimeMillis() - last) / 1000.0;
+    }
+}
@@ -26,8 +26,9 @@ public class TokenCleanupTask {
         try {
             logger.info("Starting cleanup of expired tokens");
 
+            // Revoked tokens stay until they expire: the revocation index is rebuilt from them
             int deletedTokens = jdbcTemplate.update(
-                    "DELETE FROM access_tokens WHERE expires_at < ? OR revoked = TRUE",
+                    "DELETE FROM access_tokens WHERE expires_at < ?",
                     LocalDateTime.now()
             );
 
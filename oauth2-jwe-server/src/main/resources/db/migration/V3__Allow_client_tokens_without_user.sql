@@ -0,0 +1,3 @@
+-- client_credentials tokens (single and bulk issuance) are not bound to a user
+
+ALTER TABLE access_tokens MODIFY usuario_id BIGINT NULL;
@@ -0,0 +1,6 @@
+-- Revocation time, polled incrementally by the in-memory revocation index
+ALTER TABLE access_tokens ADD COLUMN revoked_at TIMESTAMP(3) NULL;
+
+UPDATE access_tokens SET revoked_at = CURRENT_TIMESTAMP(3) WHERE revoked = TRUE;
+
+CREATE INDEX idx_revoked_at ON access_tokens (revoked_at);
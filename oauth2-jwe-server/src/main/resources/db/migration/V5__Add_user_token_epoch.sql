@@ -0,0 +1,8 @@
+-- Per-user token generation: logout bumps it, tokens of older epochs are rejected
+ALTER TABLE usuarios
+    ADD COLUMN token_epoch INT NOT NULL DEFAULT 0,
+    ADD COLUMN token_epoch_changed_at TIMESTAMP(3) NULL,
+    ADD INDEX idx_token_epoch_changed_at (token_epoch_changed_at);
+
+-- Epoch the token was issued under, checked again on refresh
+ALTER TABLE access_tokens ADD COLUMN token_epoch INT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Keep a SHA-256 digest of the issued JWE instead of the token itself: nothing reads
+-- the token back, and the TEXT column dominated the row size
+ALTER TABLE access_tokens ADD COLUMN token_digest BINARY(32) NULL AFTER token_id;
+
+UPDATE access_tokens SET token_digest = UNHEX(SHA2(token_value, 256));
+
+ALTER TABLE access_tokens
+    MODIFY token_digest BINARY(32) NOT NULL,
+    DROP COLUMN token_value;
@@ -0,0 +1,7 @@
+-- The seeded client secret hash matched no known secret, which went unnoticed while
+-- client secrets were not checked. Give the untouched default clients the secret the
+-- bundled client app uses (secret123); clients whose secret was changed are left alone.
+UPDATE oauth2_clients
+SET client_secret = '$2a$10$/g1YNawzW2PJIXXsoKkvaO1B.LPwmCKdpMi0B4OfD77u0e30QXIjm'
+WHERE client_id IN ('oauth2-client', 'api-client')
+  AND client_secret = '$2a$10$MIkW8zqHnVqjcs/JNmYqNOWHS6B7AqjCs4zF4JvLqKqJvL8rJ8Kqm';
@@ -0,0 +1,85 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.security.InternedAuthoritiesConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of mapping a decoded token to its authorities: the stock
+ * {@link JwtGrantedAuthoritiesConverter} (scopes only, plus a second instance for
+ * roles to reach the same result) versus {@link InternedAuthoritiesConverter}.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.AuthoritiesConverterBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthoritiesConverterBenchmark {
+
+    private JwtGrantedAuthoritiesConverter stockScopes;
+    private JwtGrantedAuthoritiesConverter stockRoles;
+    private InternedAuthoritiesConverter interned;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        stockScopes = new JwtGrantedAuthoritiesConverter();
+        stockScopes.setAuthorityPrefix("SCOPE_");
+        stockScopes.setAuthoritiesClaimName("scopes");
+
+        stockRoles = new JwtGrantedAuthoritiesConverter();
+        stockRoles.setAuthorityPrefix("ROLE_");
+        stockRoles.setAuthoritiesClaimName("roles");
+
+        interned = new InternedAuthoritiesConverter();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "dir")
+                .subject("admin")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claim("roles", List.of("ADMIN", "API_READ"))
+                .claim("scopes", List.of("read", "write"))
+                .build();
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> stockScopesOnly() {
+        return stockScopes.convert(jwt);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> stockRolesAndScopes() {
+        Collection<GrantedAuthority> authorities = new ArrayList<>(stockRoles.convert(jwt));
+        authorities.addAll(stockScopes.convert(jwt));
+        return authorities;
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> internedRolesAndScopes() {
+        return interned.convert(jwt);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AuthoritiesConverterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
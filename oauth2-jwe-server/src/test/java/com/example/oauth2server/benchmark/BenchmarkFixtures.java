@@ -0,0 +1,85 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.service.JweCryptoRegistry;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenClaimsCache;
+import com.example.oauth2.service.TokenClaimsCodec;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.TokenRejectionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+
+/**
+ * Wires services for the benchmarks outside of Spring, through the same
+ * constructors the unit tests use.
+ */
+final class BenchmarkFixtures {
+
+    static final RandomIdService RANDOM_IDS = new RandomIdService();
+
+    private BenchmarkFixtures() {
+    }
+
+    static JweCryptoRegistry cryptoRegistry(String encryptionKey, String signingKey) {
+        JweCryptoRegistry registry = new JweCryptoRegistry("k1", encryptionKey, signingKey, 3_600_000L, "buffered", "",
+                RANDOM_IDS);
+        registry.init();
+        return registry;
+    }
+
+    static TokenClaimsCache claimsCache(boolean enabled) {
+        TokenClaimsCache cache = new TokenClaimsCache(enabled, 10_000, new SimpleMeterRegistry());
+        cache.init();
+        return cache;
+    }
+
+    static TokenRejectionCache rejectionCache(boolean enabled) {
+        TokenRejectionCache cache = new TokenRejectionCache(enabled, 10_000, 60_000L, new SimpleMeterRegistry());
+        cache.init();
+        return cache;
+    }
+
+    static RevocationIndex revocationIndex() {
+        RevocationIndex index = new RevocationIndex(false, 5000L, null, new SimpleMeterRegistry());
+        index.init();
+        return index;
+    }
+
+    static TokenEpochIndex tokenEpochIndex() {
+        TokenEpochIndex index = new TokenEpochIndex(false, 5000L, 3_600_000L, null, new SimpleMeterRegistry());
+        index.init();
+        return index;
+    }
+
+    static JweTokenService jweTokenService(String encryptionKey, String signingKey) {
+        return jweTokenService(encryptionKey, signingKey, "encrypt-only");
+    }
+
+    static TokenClaimsCodec claimsCodec(String claimsProfile) {
+        TokenClaimsCodec codec = new TokenClaimsCodec(claimsProfile,
+                List.of("ADMIN", "USER", "API_READ", "API_WRITE", "API_CLIENT"), List.of("read", "write", "admin"));
+        codec.init();
+        return codec;
+    }
+
+    static JweTokenService jweTokenService(String encryptionKey, String signingKey, String tokenFormat) {
+        return jweTokenService(encryptionKey, signingKey, tokenFormat, "standard", false);
+    }
+
+    static JweTokenService jweTokenService(String encryptionKey, String signingKey, String tokenFormat,
+                                           String claimsProfile, boolean compress) {
+        return jweTokenService(encryptionKey, signingKey, tokenFormat, claimsProfile, compress, false);
+    }
+
+    static JweTokenService jweTokenService(String encryptionKey, String signingKey, String tokenFormat,
+                                           String claimsProfile, boolean compress, boolean rejectionCacheEnabled) {
+        JweTokenService service = new JweTokenService(cryptoRegistry(encryptionKey, signingKey), claimsCache(false),
+                claimsCodec(claimsProfile), rejectionCache(rejectionCacheEnabled), RANDOM_IDS, revocationIndex(),
+                tokenEpochIndex(), 8192, tokenFormat, compress, 0);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.service.VerifiedCredentialCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-login cost of checking a password grant: a full BCrypt comparison (every login
+ * today) versus a {@link VerifiedCredentialCache} hit for a recently verified account.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.CredentialVerificationBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CredentialVerificationBenchmark {
+
+    private static final String LOGIN = "batch-service";
+    private static final String PASSWORD = "batch-service-password";
+
+    private BCryptPasswordEncoder passwordEncoder;
+    private VerifiedCredentialCache credentialCache;
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder();
+        storedHash = passwordEncoder.encode(PASSWORD);
+
+        credentialCache = new VerifiedCredentialCache(true, true, 1000, 3_600_000L, BenchmarkFixtures.RANDOM_IDS,
+                new SimpleMeterRegistry());
+        credentialCache.init();
+        credentialCache.recordVerified(LOGIN, PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public boolean bcryptMatches() {
+        return passwordEncoder.matches(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public boolean cacheHit() {
+        return credentialCache.isVerified(LOGIN, PASSWORD, storedHash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CredentialVerificationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
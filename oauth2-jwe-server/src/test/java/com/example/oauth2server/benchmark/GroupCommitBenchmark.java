@@ -0,0 +1,189 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.security.TokenDigest;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token inserts per second, commits per second and latency percentiles for inline
+ * {@link AccessTokenRepository#save} versus group commit, at 16, 64 and 256 concurrent
+ * issuers.
+ * <p>
+ * Both databases are in-memory H2 in MySQL mode behind a Hikari pool sized like
+ * production. {@code h2} commits for free; {@code mysql-standin} adds
+ * {@link #STANDIN_COMMIT_MICROS} µs to every commit, roughly a durable InnoDB commit
+ * plus a network round trip, which is the cost group commit amortises. Commits per
+ * second are the inserts per second times the commits-per-insert ratio printed at
+ * the end of each trial.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.GroupCommitBenchmark}
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    static final long STANDIN_COMMIT_MICROS = 1000;
+
+    @Param({"h2", "mysql-standin"})
+    public String database;
+
+    @Param({"inline", "group-commit"})
+    public String mode;
+
+    private HikariDataSource pool;
+    private CommitCountingDataSource dataSource;
+    private AccessTokenRepository repository;
+    private final AtomicLong inserts = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:group_commit_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(20);
+        pool = new HikariDataSource(config);
+        dataSource = new CommitCountingDataSource(pool, "mysql-standin".equals(database) ? STANDIN_COMMIT_MICROS : 0);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+            CREATE TABLE access_tokens (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                token_id VARCHAR(255) NOT NULL UNIQUE,
+                token_digest BINARY(32) NOT NULL,
+                refresh_token VARCHAR(255),
+                usuario_id BIGINT NULL,
+                client_id VARCHAR(255) NOT NULL,
+                scopes TEXT,
+                expires_at TIMESTAMP NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                revoked BOOLEAN DEFAULT FALSE,
+                revoked_at TIMESTAMP(3) NULL,
+                token_epoch INT NOT NULL DEFAULT 0
+            )
+        """);
+        jdbcTemplate.execute("CREATE INDEX idx_refresh_token ON access_tokens (refresh_token)");
+
+        repository = new AccessTokenRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(repository, "groupCommitEnabled", "group-commit".equals(mode));
+        ReflectionTestUtils.setField(repository, "groupCommitMaxBatchSize", 256);
+        ReflectionTestUtils.setField(repository, "groupCommitMaxWaitMicros", 200L);
+        repository.init();
+        dataSource.commits.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%s/%s: %d inserts, %d commits, %.3f commits per insert%n",
+                database, mode, inserts.get(), dataSource.commits.get(),
+                (double) dataSource.commits.get() / Math.max(1, inserts.get()));
+        pool.close();
+    }
+
+    @Benchmark
+    public AccessToken issue() {
+        String tokenId = BenchmarkFixtures.RANDOM_IDS.newId();
+        AccessToken token = new AccessToken(tokenId, TokenDigest.of("jwe-" + tokenId).toBytes(),
+                BenchmarkFixtures.RANDOM_IDS.newToken(), 1L, "oauth2-client", "read,write",
+                LocalDateTime.now().plusHours(1));
+        repository.save(token);
+        inserts.incrementAndGet();
+        return token;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{16, 64, 256}) {
+            Options options = new OptionsBuilder()
+                    .include(GroupCommitBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * Counts commits, explicit or implied by auto-commit statements, and optionally
+     * charges a fixed latency for each.
+     */
+    static final class CommitCountingDataSource extends DelegatingDataSource {
+
+        final AtomicLong commits = new AtomicLong();
+        private final long commitNanos;
+
+        CommitCountingDataSource(DataSource target, long commitMicros) {
+            super(target);
+            this.commitNanos = TimeUnit.MICROSECONDS.toNanos(commitMicros);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return proxy(Connection.class, connection, (method, result) -> {
+                if (method.getName().equals("commit")) {
+                    committed();
+                } else if (result instanceof PreparedStatement statement) {
+                    return proxy(PreparedStatement.class, statement, (statementMethod, statementResult) -> {
+                        if (statementMethod.getName().startsWith("execute")
+                                && !statementMethod.getName().equals("executeQuery")
+                                && connection.getAutoCommit()) {
+                            committed();
+                        }
+                        return statementResult;
+                    });
+                }
+                return result;
+            });
+        }
+
+        private void committed() {
+            commits.incrementAndGet();
+            if (commitNanos > 0) {
+                LockSupport.parkNanos(commitNanos);
+            }
+        }
+
+        private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+                try {
+                    return afterCall.apply(method, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }));
+        }
+
+        @FunctionalInterface
+        private interface AfterCall {
+            Object apply(Method method, Object result) throws SQLException;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.service.JweCryptoRegistry;
+import com.example.oauth2.service.JweTokenService;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-token cost of issuing and validating a JWE, with the keys rebuilt on every
+ * call (the previous behaviour) versus the shared {@link JweCryptoRegistry}.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.JweCryptoRegistryBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JweCryptoRegistryBenchmark {
+
+    static final String ENCRYPTION_KEY = "bench-encryption-key-32-chars-ok";
+    static final String SIGNING_KEY = "bench-signing-key-32-characters!";
+
+    private JweTokenService jweTokenService;
+    private JWTClaimsSet claimsSet;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jweTokenService = BenchmarkFixtures.jweTokenService(ENCRYPTION_KEY, SIGNING_KEY);
+        claimsSet = new JWTClaimsSet.Builder()
+                .subject("admin")
+                .audience("oauth2-client")
+                .expirationTime(new Date(System.currentTimeMillis() + 3_600_000))
+                .claim("roles", List.of("ADMIN", "API_READ"))
+                .claim("scopes", List.of("read", "write"))
+                .build();
+        token = issue();
+    }
+
+    private String issue() {
+        return jweTokenService.generateJweToken(1L, "admin", List.of("ADMIN", "API_READ"),
+                "oauth2-client", List.of("read", "write"), LocalDateTime.now().plusHours(1));
+    }
+
+    @Benchmark
+    public String generatePerCallKeys() throws Exception {
+        SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claimsSet);
+        signedJWT.sign(new MACSigner(SIGNING_KEY.getBytes()));
+
+        EncryptedJWT encryptedJWT = new EncryptedJWT(
+                new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A256GCM).contentType("JWT").build(),
+                claimsSet);
+        encryptedJWT.encrypt(new DirectEncrypter(ENCRYPTION_KEY.getBytes()));
+        return encryptedJWT.serialize();
+    }
+
+    @Benchmark
+    public String generateSharedRegistry() {
+        return issue();
+    }
+
+    @Benchmark
+    public JWTClaimsSet validatePerCallKeys() throws Exception {
+        EncryptedJWT encryptedJWT = EncryptedJWT.parse(token);
+        encryptedJWT.decrypt(new DirectDecrypter(ENCRYPTION_KEY.getBytes()));
+        return encryptedJWT.getJWTClaimsSet();
+    }
+
+    @Benchmark
+    public JWTClaimsSet validateSharedRegistry() {
+        return jweTokenService.validateAndParseToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JweCryptoRegistryBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
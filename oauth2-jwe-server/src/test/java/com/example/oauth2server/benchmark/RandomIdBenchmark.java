@@ -0,0 +1,77 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.service.RandomIdService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention of random ID and GCM IV generation: {@link UUID#randomUUID()} and a
+ * shared default {@link SecureRandom} against the per-thread buffers of
+ * {@link RandomIdService}. {@link #main} runs every benchmark at 1, 4, 16 and 64
+ * threads.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.RandomIdBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomIdBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+
+    private RandomIdService randomIdService;
+    private SecureRandom sharedSecureRandom;
+    private SecureRandom bufferedSecureRandom;
+
+    @Setup
+    public void setUp() {
+        randomIdService = new RandomIdService();
+        sharedSecureRandom = new SecureRandom();
+        bufferedSecureRandom = randomIdService.secureRandom();
+    }
+
+    @Benchmark
+    public String idRandomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String idBuffered() {
+        return randomIdService.newId();
+    }
+
+    @Benchmark
+    public byte[] ivSharedSecureRandom() {
+        byte[] iv = new byte[12];
+        sharedSecureRandom.nextBytes(iv);
+        return iv;
+    }
+
+    @Benchmark
+    public byte[] ivBuffered() {
+        byte[] iv = new byte[12];
+        bufferedSecureRandom.nextBytes(iv);
+        return iv;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(RandomIdBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.security.TokenPrincipal;
+import com.example.oauth2.service.JweTokenService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token size and decode cost of the standard and compact claim profiles, with and
+ * without DEFLATE. The token and {@code Authorization} header sizes for each
+ * combination are printed once during setup. Decode times differ by a few
+ * microseconds between profiles, so the defaults run five forks: with one, JIT and
+ * GC variance between forks swamps the difference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class TokenEncodingBenchmark {
+
+    @Param({"standard", "compact"})
+    public String claims;
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private JweTokenService jweTokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jweTokenService = BenchmarkFixtures.jweTokenService(JweCryptoRegistryBenchmark.ENCRYPTION_KEY,
+                JweCryptoRegistryBenchmark.SIGNING_KEY, "encrypt-only", claims, compress);
+        token = jweTokenService.generateJweToken(1L, "admin", List.of("ADMIN", "API_READ", "API_WRITE"),
+                "oauth2-client", List.of("read", "write", "admin"), LocalDateTime.now().plusHours(1));
+
+        System.out.printf("%n[claims=%s, compress=%s] token: %d bytes, Authorization header: %d bytes%n",
+                claims, compress, token.length(),
+                ("Authorization: Bearer " + token).getBytes(StandardCharsets.US_ASCII).length);
+    }
+
+    @Benchmark
+    public TokenPrincipal decode() {
+        return jweTokenService.decode(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenEncodingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.service.JweTokenService;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuance and validation cost of each token format profile. The claims cache is
+ * disabled so that every validation decrypts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenFormatBenchmark {
+
+    @Param({"encrypt-only", "nested"})
+    public String format;
+
+    private JweTokenService jweTokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jweTokenService = BenchmarkFixtures.jweTokenService(
+                JweCryptoRegistryBenchmark.ENCRYPTION_KEY, JweCryptoRegistryBenchmark.SIGNING_KEY, format);
+        token = issue();
+    }
+
+    @Benchmark
+    public String issue() {
+        return jweTokenService.generateJweToken(1L, "admin", List.of("ADMIN", "API_READ"),
+                "oauth2-client", List.of("read", "write"), LocalDateTime.now().plusHours(1));
+    }
+
+    @Benchmark
+    public JWTClaimsSet validate() {
+        return jweTokenService.validateAndParseToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenFormatBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.service.JweTokenService;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jwt.EncryptedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per rejected token under a flood of invalid bearer tokens: random garbage,
+ * well-formed tokens whose header names an unknown kid, well-formed tokens with a
+ * forged tag (without the negative cache, and replayed with it), and the previous
+ * parse-then-decrypt path for comparison.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.TokenRejectionBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenRejectionBenchmark {
+
+    private static final int POOL_SIZE = 1024;
+
+    private JweTokenService jweTokenService;
+    private JweTokenService uncachedService;
+    private DirectDecrypter legacyDecrypter;
+    private String[] garbage;
+    private String[] unknownKid;
+    private String[] forged;
+    private String replayed;
+
+    @Setup
+    public void setUp() throws Exception {
+        jweTokenService = BenchmarkFixtures.jweTokenService(JweCryptoRegistryBenchmark.ENCRYPTION_KEY,
+                JweCryptoRegistryBenchmark.SIGNING_KEY, "encrypt-only", "standard", false, true);
+        uncachedService = BenchmarkFixtures.jweTokenService(
+                JweCryptoRegistryBenchmark.ENCRYPTION_KEY, JweCryptoRegistryBenchmark.SIGNING_KEY);
+        legacyDecrypter = new DirectDecrypter(JweCryptoRegistryBenchmark.ENCRYPTION_KEY.getBytes());
+
+        String token = jweTokenService.generateJweToken(1L, "admin", List.of("ADMIN"),
+                "oauth2-client", List.of("read"), LocalDateTime.now().plusHours(1));
+        int tagStart = token.lastIndexOf('.') + 1;
+        JWEHeader header = JWEObject.parse(token).getHeader();
+        String afterHeader = token.substring(token.indexOf('.'));
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        garbage = new String[POOL_SIZE];
+        unknownKid = new String[POOL_SIZE];
+        forged = new String[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            byte[] noise = new byte[token.length()];
+            random.nextBytes(noise);
+            garbage[i] = new String(noise, StandardCharsets.ISO_8859_1);
+            // Valid header JSON with a kid the keyring does not hold
+            unknownKid[i] = new JWEHeader.Builder(header).keyID("unknown-" + i).build().toBase64URL() + afterHeader;
+            // Unique forged tags so the negative cache never helps
+            forged[i] = token.substring(0, tagStart) + String.format("%04d", i) + token.substring(tagStart + 4);
+        }
+        replayed = forged[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_SIZE)
+    public int rejectGarbage() {
+        int valid = 0;
+        for (String token : garbage) {
+            valid += jweTokenService.isTokenValid(token) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_SIZE)
+    public int rejectGarbageLegacy() {
+        int valid = 0;
+        for (String token : garbage) {
+            valid += legacyValidate(token) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_SIZE)
+    public int rejectUnknownKid() {
+        int valid = 0;
+        for (String token : unknownKid) {
+            valid += uncachedService.isTokenValid(token) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_SIZE)
+    public int rejectUnknownKidLegacy() {
+        int valid = 0;
+        for (String token : unknownKid) {
+            valid += legacyValidate(token) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_SIZE)
+    public int rejectForged() {
+        int valid = 0;
+        for (String token : forged) {
+            valid += uncachedService.isTokenValid(token) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public boolean rejectForgedReplay() {
+        return jweTokenService.isTokenValid(replayed);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_SIZE)
+    public int rejectForgedLegacy() {
+        int valid = 0;
+        for (String token : forged) {
+            valid += legacyValidate(token) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    private boolean legacyValidate(String token) {
+        // Parse and decrypt, wrapping failures in a fresh exception as before
+        try {
+            EncryptedJWT encryptedJWT = EncryptedJWT.parse(token);
+            encryptedJWT.decrypt(legacyDecrypter);
+            return encryptedJWT.getJWTClaimsSet() != null;
+        } catch (Exception e) {
+            return new RuntimeException("Invalid JWE token", e).getStackTrace().length < 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenRejectionBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.oauth2server.benchmark;
+
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.security.TokenDigest;
+import com.example.oauth2.service.JweTokenService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert and scan cost of an access token row holding the full JWE in
+ * {@code token_value} (the previous layout, with {@code SELECT *} reads) versus the
+ * 32-byte {@code token_digest} with the repository's explicit projections.
+ * <p>
+ * Both tables live in in-memory H2 in MySQL mode; the JWE is a real token from
+ * {@link JweTokenService}. Scans read {@value #SCAN_ROWS} rows of one client.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.oauth2server.benchmark.TokenRowBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenRowBenchmark {
+
+    static final int SCAN_ROWS = 1000;
+
+    private static final String LEGACY_INSERT = """
+        INSERT INTO legacy_access_tokens (token_id, token_value, refresh_token, usuario_id,
+        client_id, scopes, expires_at, created_at, revoked, token_epoch)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private HikariDataSource pool;
+    private JdbcTemplate jdbcTemplate;
+    private AccessTokenRepository repository;
+    private String jweToken;
+
+    private final RowMapper<AccessToken> legacyRowMapper = (rs, rowNum) -> {
+        AccessToken token = new AccessToken();
+        token.setId(rs.getLong("id"));
+        token.setTokenId(rs.getString("token_id"));
+        rs.getString("token_value");
+        token.setRefreshToken(rs.getString("refresh_token"));
+        token.setUsuarioId(rs.getObject("usuario_id", Long.class));
+        token.setClientId(rs.getString("client_id"));
+        token.setScopes(rs.getString("scopes"));
+        token.setExpiresAt(rs.getTimestamp("expires_at").toLocalDateTime());
+        token.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        token.setRevoked(rs.getBoolean("revoked"));
+        token.setTokenEpoch(rs.getInt("token_epoch"));
+        return token;
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JweTokenService jweTokenService = BenchmarkFixtures.jweTokenService(
+                JweCryptoRegistryBenchmark.ENCRYPTION_KEY, JweCryptoRegistryBenchmark.SIGNING_KEY);
+        jweToken = jweTokenService.generateJweToken(1L, "admin", List.of("ADMIN", "API_READ"),
+                "oauth2-client", List.of("read", "write"), LocalDateTime.now().plusHours(1));
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:token_rows_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        pool = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(pool);
+        for (String table : List.of("legacy_access_tokens", "access_tokens")) {
+            String payloadColumn = table.startsWith("legacy") ? "token_value TEXT NOT NULL" : "token_digest BINARY(32) NOT NULL";
+            jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    token_id VARCHAR(255) NOT NULL UNIQUE,
+                    %s,
+                    refresh_token VARCHAR(255),
+                    usuario_id BIGINT NULL,
+                    client_id VARCHAR(255) NOT NULL,
+                    scopes TEXT,
+                    expires_at TIMESTAMP NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    revoked BOOLEAN DEFAULT FALSE,
+                    revoked_at TIMESTAMP(3) NULL,
+                    token_epoch INT NOT NULL DEFAULT 0
+                )
+            """.formatted(table, payloadColumn));
+            jdbcTemplate.execute("CREATE INDEX idx_%s_client_id ON %s (client_id)".formatted(table, table));
+        }
+
+        repository = new AccessTokenRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionManager", new DataSourceTransactionManager(pool));
+        repository.init();
+
+        for (int i = 0; i < SCAN_ROWS; i++) {
+            insertLegacy("scan-client");
+            insertDigest("scan-client");
+        }
+        System.out.printf("%nPer-row payload: token_value %d bytes, token_digest 32 bytes%n", jweToken.length());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public Long insertLegacy() {
+        return insertLegacy("oauth2-client");
+    }
+
+    @Benchmark
+    public AccessToken insertDigest() {
+        return insertDigest("oauth2-client");
+    }
+
+    @Benchmark
+    public List<AccessToken> scanLegacy() {
+        return jdbcTemplate.query("SELECT * FROM legacy_access_tokens WHERE client_id = ? ORDER BY created_at DESC",
+                legacyRowMapper, "scan-client");
+    }
+
+    @Benchmark
+    public List<AccessToken> scanDigest() {
+        return repository.findByClientId("scan-client");
+    }
+
+    private Long insertLegacy(String clientId) {
+        jdbcTemplate.update(LEGACY_INSERT, BenchmarkFixtures.RANDOM_IDS.newId(), jweToken,
+                BenchmarkFixtures.RANDOM_IDS.newToken(), 1L, clientId, "read,write",
+                LocalDateTime.now().plusHours(1), LocalDateTime.now(), false, 0);
+        return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+    }
+
+    private AccessToken insertDigest(String clientId) {
+        return repository.save(new AccessToken(BenchmarkFixtures.RANDOM_IDS.newId(), TokenDigest.of(jweToken).toBytes(),
+                BenchmarkFixtures.RANDOM_IDS.newToken(), 1L, clientId, "read,write", LocalDateTime.now().plusHours(1)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenRowBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
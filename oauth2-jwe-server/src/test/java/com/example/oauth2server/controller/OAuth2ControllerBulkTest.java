@@ -0,0 +1,92 @@
+package com.example.oauth2server.controller;
+
+import com.example.oauth2.controller.OAuth2Controller;
+import com.example.oauth2.dto.BulkTokenRequest;
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.service.ClientRegistry.RegisteredClient;
+import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.ServiceOverloadedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OAuth2ControllerBulkTest {
+
+    private OAuth2TokenService tokenService;
+    private OAuth2Controller controller;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = mock(OAuth2TokenService.class);
+        controller = new OAuth2Controller();
+        ReflectionTestUtils.setField(controller, "tokenService", tokenService);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+    }
+
+    private static BulkTokenRequest request() {
+        BulkTokenRequest request = new BulkTokenRequest();
+        request.setClient_id("api-client");
+        request.setClient_secret("secret");
+        request.setScope("read");
+        request.setCount(2);
+        return request;
+    }
+
+    @Test
+    void generateBulkTokens_ShouldReturn503WithRetryAfter_WhenHashingIsOverloaded() {
+        // Given
+        when(tokenService.validateBulkRequest(any()))
+                .thenThrow(new ServiceOverloadedException("Password hashing queue is full", 2));
+
+        // When
+        ResponseEntity<?> response = controller.generateBulkTokens(request());
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        verify(tokenService, never()).issueBulkClientTokens(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void generateBulkTokens_ShouldAuthenticateOnce_AndStreamForTheAuthenticatedClient() throws Exception {
+        // Given
+        BulkTokenRequest request = request();
+        RegisteredClient client = new RegisteredClient("api-client", "hash", Set.of("read"), Set.of("client_credentials"));
+        when(tokenService.validateBulkRequest(request)).thenReturn(client);
+        when(tokenService.issueBulkClientTokens(eq(request), eq(client), any())).thenAnswer(invocation -> {
+            Consumer<List<TokenResponse>> sink = invocation.getArgument(2);
+            sink.accept(List.of(new TokenResponse("token-1", "Bearer", 3600L, "refresh-1", "read"),
+                    new TokenResponse("token-2", "Bearer", 3600L, "refresh-2", "read")));
+            return 2;
+        });
+
+        // When
+        ResponseEntity<?> response = controller.generateBulkTokens(request);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n"))
+                .hasSize(2)
+                .allSatisfy(line -> assertThat(line).contains("\"access_token\":\"token-"));
+        verify(tokenService, times(1)).validateBulkRequest(request);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.oauth2server.filter;
 
 import com.example.oauth2.filter.RequestResponseLoggingFilter;
+import com.example.oauth2.service.RandomIdService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,7 +32,7 @@ class RequestResponseLoggingFilterTest {
 
     @BeforeEach
     void setUp() {
-        loggingFilter = new RequestResponseLoggingFilter();
+        loggingFilter = new RequestResponseLoggingFilter(new RandomIdService());
     }
 
     @Test
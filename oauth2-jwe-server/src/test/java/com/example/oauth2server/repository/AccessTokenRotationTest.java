@@ -0,0 +1,138 @@
+package com.example.oauth2server.repository;
+
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AccessTokenRotationTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private AccessTokenRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:rotation_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(8);
+        dataSource = new HikariDataSource(config);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+            CREATE TABLE access_tokens (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                token_id VARCHAR(255) NOT NULL UNIQUE,
+                token_digest BINARY(32) NOT NULL,
+                refresh_token VARCHAR(255),
+                usuario_id BIGINT NULL,
+                client_id VARCHAR(255) NOT NULL,
+                scopes TEXT,
+                expires_at TIMESTAMP NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                revoked BOOLEAN DEFAULT FALSE,
+                revoked_at TIMESTAMP(3) NULL,
+                token_epoch INT NOT NULL DEFAULT 0
+            )
+        """);
+        jdbcTemplate.execute("CREATE INDEX idx_refresh_token ON access_tokens (refresh_token)");
+
+        repository = new AccessTokenRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionManager", new DataSourceTransactionManager(dataSource));
+        repository.init();
+
+        repository.saveAll(List.of(token("old-token", "refresh-1")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    private static AccessToken token(String tokenId, String refreshToken) {
+        return new AccessToken(tokenId, new byte[32], refreshToken, 1L, "oauth2-client", "read",
+                LocalDateTime.now().plusHours(1));
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    @Test
+    void rotateRefreshToken_ShouldRevokeOldTokenAndInsertReplacement() {
+        // When
+        Optional<AccessToken> rotated = repository.rotateRefreshToken("refresh-1",
+                existing -> token("new-token", "refresh-2"));
+
+        // Then
+        assertThat(rotated).isPresent();
+        assertThat(rotated.get().getTokenId()).isEqualTo("old-token");
+        assertThat(count("SELECT COUNT(*) FROM access_tokens WHERE token_id = 'old-token' AND revoked = TRUE AND revoked_at IS NOT NULL")).isEqualTo(1);
+        assertThat(repository.findByRefreshToken("refresh-2")).isPresent();
+        assertThat(repository.rotateRefreshToken("refresh-1", existing -> token("another-token", "refresh-3"))).isEmpty();
+    }
+
+    @Test
+    void rotateRefreshToken_ShouldRollBackRevoke_WhenReplacementIsRejected() {
+        // When
+        assertThatThrownBy(() -> repository.rotateRefreshToken("refresh-1", existing -> {
+            throw new IllegalArgumentException("User account is disabled");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        // Then
+        assertThat(repository.findByRefreshToken("refresh-1")).isPresent();
+        assertThat(count("SELECT COUNT(*) FROM access_tokens")).isEqualTo(1);
+    }
+
+    @Test
+    void rotateRefreshToken_ShouldLetExactlyOneConcurrentCallerWin() throws Exception {
+        // Given
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < callers; i++) {
+            String newTokenId = "new-token-" + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return repository.rotateRefreshToken("refresh-1",
+                        existing -> token(newTokenId, "refresh-" + newTokenId)).isPresent();
+            }));
+        }
+        start.countDown();
+        int winners = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(10, TimeUnit.SECONDS)) {
+                winners++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(winners).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM access_tokens WHERE revoked = FALSE")).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM access_tokens")).isEqualTo(2);
+    }
+}
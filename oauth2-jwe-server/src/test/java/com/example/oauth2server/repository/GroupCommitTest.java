@@ -0,0 +1,149 @@
+package com.example.oauth2server.repository;
+
+import com.example.oauth2.repository.GroupCommit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GroupCommitTest {
+
+    @Test
+    void submit_ShouldCommitConcurrentRowsInSharedBatches() throws Exception {
+        // Given
+        List<Integer> committed = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger batches = new AtomicInteger();
+        GroupCommit<Integer> groupCommit = new GroupCommit<>(rows -> {
+            batches.incrementAndGet();
+            sleep(5);
+            committed.addAll(rows);
+        }, committed::add, 64, 0);
+        int callers = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            int row = i;
+            results.add(executor.submit(() -> {
+                start.await();
+                groupCommit.submit(row);
+                // Returning means the row is committed
+                return committed.contains(row);
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isTrue();
+        }
+        executor.shutdown();
+        assertThat(committed).hasSize(callers).doesNotHaveDuplicates();
+        assertThat(batches.get()).isLessThan(callers);
+    }
+
+    @Test
+    void submit_ShouldFailOnlyTheBadRow_WhenBatchFails() throws Exception {
+        // Given
+        List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        GroupCommit<String> groupCommit = new GroupCommit<>(rows -> {
+            if (rows.contains("first")) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+            }
+            if (rows.contains("bad")) {
+                throw new IllegalStateException("duplicate key");
+            }
+            committed.addAll(rows);
+        }, row -> {
+            if (row.equals("bad")) {
+                throw new IllegalStateException("duplicate key");
+            }
+            committed.add(row);
+        }, 64, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // When: "good" and "bad" queue up behind the first batch and share the next one
+        Future<?> first = executor.submit(() -> groupCommit.submit("first"));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> good = executor.submit(() -> groupCommit.submit("good"));
+        Future<?> bad = executor.submit(() -> groupCommit.submit("bad"));
+        sleep(100);
+        releaseFirstBatch.countDown();
+
+        // Then
+        first.get(5, TimeUnit.SECONDS);
+        good.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("duplicate key");
+        executor.shutdown();
+        assertThat(committed).containsExactlyInAnyOrder("first", "good");
+    }
+
+    @Test
+    void submit_ShouldFailTheWholeGroup_AndPassLeadershipOn_WhenWriterThrowsAnError() throws Exception {
+        // Given
+        List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        GroupCommit<String> groupCommit = new GroupCommit<>(rows -> {
+            if (rows.contains("first")) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+            }
+            if (rows.contains("fatal")) {
+                throw new AssertionError("writer crashed");
+            }
+            committed.addAll(rows);
+        }, committed::add, 64, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // When: "fatal" and "bystander" share the group after the first one
+        Future<?> first = executor.submit(() -> groupCommit.submit("first"));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> fatal = executor.submit(() -> groupCommit.submit("fatal"));
+        Future<?> bystander = executor.submit(() -> groupCommit.submit("bystander"));
+        sleep(100);
+        releaseFirstBatch.countDown();
+
+        // Then
+        first.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> fatal.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(AssertionError.class);
+        assertThatThrownBy(() -> bystander.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(AssertionError.class);
+        executor.submit(() -> groupCommit.submit("later")).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertThat(committed).containsExactlyInAnyOrder("first", "later");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
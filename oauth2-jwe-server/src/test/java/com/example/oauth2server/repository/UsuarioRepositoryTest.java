@@ -0,0 +1,77 @@
+package com.example.oauth2server.repository;
+
+import com.example.oauth2.repository.UsuarioChangedEvent;
+import com.example.oauth2.repository.UsuarioRepository;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UsuarioRepositoryTest {
+
+    private HikariDataSource dataSource;
+    private ApplicationEventPublisher eventPublisher;
+    private UsuarioRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:usuarios_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        dataSource = new HikariDataSource(config);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+            CREATE TABLE usuarios (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                login VARCHAR(100) NOT NULL,
+                token_epoch INT NOT NULL DEFAULT 0,
+                token_epoch_changed_at TIMESTAMP(3) NULL
+            )
+        """);
+        jdbcTemplate.update("INSERT INTO usuarios (id, login) VALUES (1, 'testuser')");
+
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        repository = new UsuarioRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "eventPublisher", eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void bumpTokenEpoch_ShouldReturnTheNewEpoch_AndPublishTheChange() {
+        // When
+        int first = repository.bumpTokenEpoch(1L);
+        int second = repository.bumpTokenEpoch(1L);
+
+        // Then
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(2);
+        assertThat(repository.findTokenEpochsChangedSince(null))
+                .singleElement()
+                .satisfies(row -> assertThat(row.epoch()).isEqualTo(2));
+        verify(eventPublisher, times(2)).publishEvent(new UsuarioChangedEvent(1L, null));
+    }
+
+    @Test
+    void bumpTokenEpoch_ShouldReturnZero_ForUnknownUser() {
+        // When
+        int epoch = repository.bumpTokenEpoch(99L);
+
+        // Then
+        assertThat(epoch).isZero();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.oauth2server.security;
+
+import com.example.oauth2.security.CalibratedPasswordEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CalibratedPasswordEncoderTest {
+
+    private CalibratedPasswordEncoder createEncoder(int strength, long targetMs, int minStrength, int maxStrength) {
+        CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder(strength, targetMs, minStrength, maxStrength);
+        encoder.init();
+        return encoder;
+    }
+
+    @Test
+    void init_ShouldCalibrateWithinConfiguredRange() {
+        // When
+        CalibratedPasswordEncoder generous = createEncoder(0, 60_000, 4, 6);
+        CalibratedPasswordEncoder strict = createEncoder(0, 0, 4, 6);
+
+        // Then
+        assertThat(generous.getStrength()).isEqualTo(6);
+        assertThat(strict.getStrength()).isEqualTo(4);
+        assertThat(generous.encode("secret")).startsWith("$2a$06$");
+    }
+
+    @Test
+    void upgradeEncoding_ShouldFlagOnlyCheaperHashes_WhileStillMatchingAll() {
+        // Given
+        CalibratedPasswordEncoder encoder = createEncoder(5, 250, 4, 14);
+        String cheaper = new BCryptPasswordEncoder(4).encode("secret");
+        String dearer = new BCryptPasswordEncoder(6).encode("secret");
+        String current = encoder.encode("secret");
+
+        // When & Then
+        assertThat(encoder.matches("secret", cheaper)).isTrue();
+        assertThat(encoder.matches("secret", dearer)).isTrue();
+        assertThat(encoder.upgradeEncoding(cheaper)).isTrue();
+        assertThat(encoder.upgradeEncoding(dearer)).isFalse();
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+        assertThat(encoder.upgradeEncoding("not-a-bcrypt-hash")).isTrue();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.oauth2server.security;
+
+import com.example.oauth2.security.InternedAuthoritiesConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class InternedAuthoritiesConverterTest {
+
+    private final InternedAuthoritiesConverter converter = new InternedAuthoritiesConverter();
+
+    @Test
+    void convert_ShouldMapRolesAndScopes() {
+        // Given
+        Jwt jwt = jwt(List.of("ADMIN", "API_READ"), List.of("read", "write"));
+
+        // When
+        Collection<GrantedAuthority> authorities = converter.convert(jwt);
+
+        // Then
+        assertThat(authorities).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN", "ROLE_API_READ", "SCOPE_read", "SCOPE_write");
+        assertThatThrownBy(() -> authorities.add(authorities.iterator().next()))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void convert_ShouldReturnSameInstance_ForSameRolesAndScopes() {
+        // Given
+        Jwt first = jwt(List.of("ADMIN"), List.of("read", "write"));
+        Jwt second = jwt(List.of("ADMIN"), List.of("read", "write"));
+        Jwt other = jwt(List.of("USER"), List.of("read", "write"));
+
+        // When
+        Collection<GrantedAuthority> firstAuthorities = converter.convert(first);
+        Collection<GrantedAuthority> secondAuthorities = converter.convert(second);
+        Collection<GrantedAuthority> otherAuthorities = converter.convert(other);
+
+        // Then
+        assertThat(secondAuthorities).isSameAs(firstAuthorities);
+        assertThat(otherAuthorities).isNotSameAs(firstAuthorities)
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER", "SCOPE_read", "SCOPE_write");
+    }
+
+    @Test
+    void convert_ShouldReturnEmpty_WhenClaimsAreMissing() {
+        // Given
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "dir").subject("client").build();
+
+        // When & Then
+        assertThat(converter.convert(jwt)).isEmpty();
+    }
+
+    private static Jwt jwt(List<String> roles, List<String> scopes) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "dir")
+                .subject("admin")
+                .issuedAt(Instant.now())
+                .claim("roles", roles)
+                .claim("scopes", scopes)
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.oauth2server.security;
+
+import com.example.oauth2.config.SecurityConfig;
+import com.example.oauth2.security.JweJwtDecoder;
+import com.example.oauth2.security.TokenPrincipal;
+import com.example.oauth2.security.TokenPrincipalResolver;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.TokenValidationResult;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JweJwtDecoderTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    private JweJwtDecoder decoder;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new JweJwtDecoder(jweTokenService);
+        request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void decode_ShouldMapClaims_AndShareThePrincipalWithTheRequest() {
+        // Given
+        Date issuedAt = new Date(System.currentTimeMillis() / 1000 * 1000);
+        Date expiresAt = new Date(issuedAt.getTime() + 3_600_000);
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .jwtID("jti-1")
+                .subject("admin")
+                .issueTime(issuedAt)
+                .expirationTime(expiresAt)
+                .build();
+        TokenPrincipal principal = new TokenPrincipal("jti-1", 1L, "admin", "oauth2-client",
+                List.of("ADMIN"), List.of("read", "write"), issuedAt, expiresAt);
+        when(jweTokenService.validate("jwe-token")).thenReturn(TokenValidationResult.valid(claims));
+        when(jweTokenService.toPrincipal(claims)).thenReturn(principal);
+
+        // When
+        Jwt jwt = decoder.decode("jwe-token");
+        AbstractAuthenticationToken authentication = new SecurityConfig().jwtAuthenticationConverter().convert(jwt);
+
+        // Then
+        assertThat(jwt.getSubject()).isEqualTo("admin");
+        assertThat(jwt.getExpiresAt()).isEqualTo(expiresAt.toInstant());
+        assertThat(jwt.getClaimAsStringList("scopes")).containsExactly("read", "write");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN", "SCOPE_read", "SCOPE_write");
+        assertThat(request.getAttribute(TokenPrincipalResolver.REQUEST_ATTRIBUTE)).isSameAs(principal);
+    }
+
+    @Test
+    void decode_ShouldThrowBadJwtException_WhenTokenIsInvalid() {
+        // Given
+        when(jweTokenService.validate("expired-token"))
+                .thenReturn(TokenValidationResult.failure(TokenValidationResult.Reason.EXPIRED));
+
+        // When & Then
+        assertThatThrownBy(() -> decoder.decode("expired-token"))
+                .isInstanceOf(BadJwtException.class)
+                .hasMessageContaining("expired");
+        verify(jweTokenService, never()).toPrincipal(any());
+        assertThat(request.getAttribute(TokenPrincipalResolver.REQUEST_ATTRIBUTE)).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.oauth2server.security;
+
+import com.example.oauth2.security.TokenPrincipal;
+import com.example.oauth2.security.TokenPrincipalResolver;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.TokenValidationResult;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenPrincipalResolverTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    @InjectMocks
+    private TokenPrincipalResolver resolver;
+
+    @Test
+    void resolve_ShouldDecodeTokenOnlyOncePerRequest() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer valid-token");
+        TokenPrincipal principal = new TokenPrincipal("jti-1", 1L, "admin", "oauth2-client",
+                List.of("ADMIN"), List.of("read"), new Date(), new Date());
+        JWTClaimsSet claims = new JWTClaimsSet.Builder().subject("admin").build();
+        when(jweTokenService.validate("valid-token")).thenReturn(TokenValidationResult.valid(claims));
+        when(jweTokenService.toPrincipal(claims)).thenReturn(principal);
+
+        // When
+        TokenPrincipal first = resolver.resolve(request);
+        TokenPrincipal second = resolver.resolve(request);
+
+        // Then
+        assertThat(first).isSameAs(principal);
+        assertThat(second).isSameAs(principal);
+        verify(jweTokenService, times(1)).validate("valid-token");
+    }
+
+    @Test
+    void resolve_ShouldThrowException_WhenAuthorizationHeaderIsMissing() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        // When & Then
+        assertThatThrownBy(() -> resolver.resolve(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid authorization header");
+        verify(jweTokenService, never()).validate(anyString());
+    }
+
+    @Test
+    void resolve_ShouldReturnNull_AndNotCache_WhenTokenIsInvalid() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer expired-token");
+        when(jweTokenService.validate("expired-token"))
+                .thenReturn(TokenValidationResult.failure(TokenValidationResult.Reason.EXPIRED));
+
+        // When
+        TokenPrincipal principal = resolver.resolve(request);
+
+        // Then
+        assertThat(principal).isNull();
+        assertThat(request.getAttribute(TokenPrincipalResolver.REQUEST_ATTRIBUTE)).isNull();
+        verify(jweTokenService, never()).toPrincipal(any());
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.security.TokenDigest;
+import com.example.oauth2.service.AccessTokenWriter;
+import com.example.oauth2.service.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AccessTokenWriterTest {
+
+    private final AccessTokenRepository accessTokenRepository = mock(AccessTokenRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> stored = new ArrayList<>();
+    private AccessTokenWriter writer;
+
+    private AccessTokenWriter createWriter(boolean enabled, int queueCapacity, int batchSize, long flushIntervalMs) {
+        AccessTokenWriter tokenWriter = new AccessTokenWriter(enabled, queueCapacity, batchSize, flushIntervalMs, 10L, 3,
+                5000L, accessTokenRepository, meterRegistry);
+        tokenWriter.init();
+        return tokenWriter;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void write_ShouldSaveInline_WhenWriteBehindIsDisabled() {
+        // Given
+        writer = createWriter(false, 10, 10, 50);
+        AccessToken token = token("t1");
+
+        // When
+        writer.write(token);
+
+        // Then
+        verify(accessTokenRepository).save(token);
+        verify(accessTokenRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void flush_ShouldStoreQueuedTokensInBatches_BeforeReturning() {
+        // Given
+        recordStoredTokens();
+        writer = createWriter(true, 100, 2, 60_000);
+
+        // When
+        writer.write(token("t1"));
+        writer.write(token("t2"));
+        writer.write(token("t3"));
+        writer.flush();
+
+        // Then
+        synchronized (stored) {
+            assertThat(stored).containsExactlyInAnyOrder("t1", "t2", "t3");
+        }
+        assertThat(writer.getQueueDepth()).isZero();
+        verify(accessTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void write_ShouldShed_WhenQueueStaysFull() throws Exception {
+        // Given
+        CountDownLatch storing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            storing.countDown();
+            release.await();
+            return null;
+        }).when(accessTokenRepository).saveAll(anyList());
+        writer = createWriter(true, 1, 1, 10);
+        writer.write(token("t1"));
+        assertThat(storing.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.write(token("t2"));
+
+        // When & Then
+        assertThatThrownBy(() -> writer.write(token("t3")))
+                .isInstanceOf(ServiceOverloadedException.class);
+        release.countDown();
+
+        // The shed token must not hold up a flush
+        assertThatCode(() -> writer.flush()).doesNotThrowAnyException();
+        verify(accessTokenRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void flush_ShouldReturn_WhenABatchFailsWithANonDatabaseError() {
+        // Given
+        doThrow(new IllegalStateException("boom"))
+                .doAnswer(invocation -> null)
+                .when(accessTokenRepository).saveAll(anyList());
+        writer = createWriter(true, 100, 10, 60_000);
+        writer.write(token("t1"));
+        writer.write(token("t2"));
+
+        // When
+        writer.flush();
+        writer.write(token("t3"));
+        writer.flush();
+
+        // Then
+        assertThat(meterRegistry.counter("oauth2.token.write.dropped").count()).isEqualTo(2.0);
+        verify(accessTokenRepository, times(2)).saveAll(anyList());
+        assertThat(writer.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void shutdown_ShouldDrainQueue() {
+        // Given
+        recordStoredTokens();
+        writer = createWriter(true, 100, 50, 60_000);
+        for (int i = 0; i < 10; i++) {
+            writer.write(token("t" + i));
+        }
+
+        // When
+        writer.shutdown();
+
+        // Then
+        synchronized (stored) {
+            assertThat(stored).hasSize(10);
+        }
+        assertThatThrownBy(() -> writer.write(token("late")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordStoredTokens() {
+        doAnswer(invocation -> {
+            synchronized (stored) {
+                ((List<AccessToken>) invocation.getArgument(0)).forEach(token -> stored.add(token.getTokenId()));
+            }
+            return null;
+        }).when(accessTokenRepository).saveAll(anyList());
+    }
+
+    private static AccessToken token(String tokenId) {
+        return new AccessToken(tokenId, TokenDigest.of("jwe-" + tokenId).toBytes(), "refresh-" + tokenId, 1L, "client", "read",
+                LocalDateTime.now().plusHours(1));
+    }
+}
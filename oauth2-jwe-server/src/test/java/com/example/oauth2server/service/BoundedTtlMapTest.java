@@ -0,0 +1,76 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.BoundedTtlMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BoundedTtlMapTest {
+
+    private Counter evictions;
+
+    @BeforeEach
+    void setUp() {
+        evictions = new SimpleMeterRegistry().counter("evictions");
+    }
+
+    private record Value(String name, long expiresAtMillis) {
+    }
+
+    private static Value expiringIn(String name, long millis) {
+        return new Value(name, System.currentTimeMillis() + millis);
+    }
+
+    @Test
+    void get_ShouldReturnLiveValues_AndDropExpiredOnes() {
+        // Given
+        BoundedTtlMap<String, Value> map = new BoundedTtlMap<>(10, Value::expiresAtMillis, evictions);
+        map.put("live", expiringIn("live", 60_000));
+        map.put("expired", expiringIn("expired", -1));
+
+        // When & Then
+        assertThat(map.get("live").name()).isEqualTo("live");
+        assertThat(map.get("expired")).isNull();
+        assertThat(map.get("missing")).isNull();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void put_ShouldEvictTheValueExpiringFirst_WhenFull() {
+        // Given
+        BoundedTtlMap<String, Value> map = new BoundedTtlMap<>(2, Value::expiresAtMillis, evictions);
+        map.put("soon", expiringIn("soon", 10_000));
+        map.put("later", expiringIn("later", 60_000));
+
+        // When
+        map.put("later", expiringIn("later", 90_000));
+        map.put("new", expiringIn("new", 60_000));
+
+        // Then
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get("soon")).isNull();
+        assertThat(map.get("later")).isNotNull();
+        assertThat(map.get("new")).isNotNull();
+        assertThat(evictions.count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void purgeExpired_ShouldRemoveAndCountExpiredValues() {
+        // Given
+        BoundedTtlMap<String, Value> map = new BoundedTtlMap<>(10, Value::expiresAtMillis, evictions);
+        map.put("a", expiringIn("a", -1));
+        map.put("b", expiringIn("b", -1));
+        map.put("c", expiringIn("c", 60_000));
+
+        // When
+        int removed = map.purgeExpired();
+
+        // Then
+        assertThat(removed).isEqualTo(2);
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(evictions.count()).isEqualTo(2.0);
+    }
+}
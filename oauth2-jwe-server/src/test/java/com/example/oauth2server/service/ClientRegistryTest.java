@@ -0,0 +1,106 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.model.OAuth2Client;
+import com.example.oauth2.repository.OAuth2ClientRepository;
+import com.example.oauth2.service.ClientRegistry;
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ClientRegistryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private OAuth2ClientRepository clientRepository;
+    private PasswordHashingBulkhead passwordHashingBulkhead;
+    private VerifiedCredentialCache credentialCache;
+    private ClientRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        clientRepository = mock(OAuth2ClientRepository.class);
+        passwordHashingBulkhead = mock(PasswordHashingBulkhead.class);
+        credentialCache = mock(VerifiedCredentialCache.class);
+        when(clientRepository.findAll()).thenReturn(List.of(
+                client("api-client", "read,write", "client_credentials", true, T0)));
+
+        registry = new ClientRegistry(5000L, 300_000L, clientRepository, passwordHashingBulkhead, credentialCache,
+                new SimpleMeterRegistry());
+        registry.init();
+    }
+
+    private static OAuth2Client client(String clientId, String scopes, String grantTypes, boolean active,
+                                       LocalDateTime updatedAt) {
+        OAuth2Client client = new OAuth2Client();
+        client.setClientId(clientId);
+        client.setClientSecret("hash-of-" + clientId);
+        client.setScopes(scopes);
+        client.setGrantTypes(grantTypes);
+        client.setAtivo(active);
+        client.setUpdatedAt(updatedAt);
+        return client;
+    }
+
+    @Test
+    void authenticate_ShouldVerifySecretOnce_AndUseCachedVerificationAfterwards() {
+        // Given
+        when(passwordHashingBulkhead.matches("secret", "hash-of-api-client")).thenReturn(true);
+
+        // When
+        registry.authenticate("api-client", "secret", "client_credentials", List.of("read"));
+        when(credentialCache.isClientVerified("api-client", "secret", "hash-of-api-client")).thenReturn(true);
+        registry.authenticate("api-client", "secret", "client_credentials", List.of("read", "write"));
+
+        // Then
+        verify(passwordHashingBulkhead, times(1)).matches(any(), any());
+        verify(credentialCache).recordClientVerified("api-client", "secret", "hash-of-api-client");
+        verify(clientRepository, times(1)).findAll();
+        verifyNoMoreInteractions(clientRepository);
+    }
+
+    @Test
+    void authenticate_ShouldRejectWrongSecret_UnknownClient_AndDisallowedScopeOrGrant() {
+        // Given
+        when(passwordHashingBulkhead.matches("secret", "hash-of-api-client")).thenReturn(true);
+
+        // When / Then
+        assertThatThrownBy(() -> registry.authenticate("api-client", "wrong", "client_credentials", List.of("read")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid client credentials");
+        assertThatThrownBy(() -> registry.authenticate("unknown", "secret", "client_credentials", List.of("read")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid client credentials");
+        assertThatThrownBy(() -> registry.authenticate("api-client", "secret", "client_credentials", List.of("admin")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("admin");
+        assertThatThrownBy(() -> registry.authenticate("api-client", "secret", "password", List.of("read")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("password");
+    }
+
+    @Test
+    void refresh_ShouldApplyChangedClients_Incrementally() {
+        // Given
+        when(clientRepository.findUpdatedSince(T0.minusSeconds(5))).thenReturn(List.of(
+                client("api-client", "read", "client_credentials", false, T0.plusMinutes(1)),
+                client("new-client", "read", "client_credentials", true, T0.plusMinutes(1))));
+
+        // When
+        registry.refresh();
+
+        // Then
+        assertThat(registry.find("api-client")).isNull();
+        assertThat(registry.find("new-client")).isNotNull();
+        assertThat(registry.find("new-client").scopes()).containsExactly("read");
+        verify(clientRepository, times(1)).findAll();
+    }
+}
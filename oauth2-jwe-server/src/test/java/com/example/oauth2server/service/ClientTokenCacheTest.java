@@ -0,0 +1,98 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.service.ClientTokenCache;
+import com.example.oauth2.service.RevocationIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClientTokenCacheTest {
+
+    private ClientTokenCache cache;
+    private RevocationIndex revocationIndex;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        revocationIndex = mock(RevocationIndex.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = createCache(0.5);
+    }
+
+    private ClientTokenCache createCache(double minRemainingRatio) {
+        ClientTokenCache clientTokenCache = new ClientTokenCache(true, minRemainingRatio, 100, revocationIndex,
+                meterRegistry);
+        clientTokenCache.init();
+        return clientTokenCache;
+    }
+
+    private static TokenResponse response(String accessToken) {
+        return new TokenResponse(accessToken, "Bearer", 3600L, "refresh", "read write");
+    }
+
+    @Test
+    void get_ShouldReuseToken_ForSameClientAndScopeSet() {
+        // Given
+        cache.put("api-client", List.of("read", "write"), "jti-1", response("token-1"));
+
+        // When
+        TokenResponse sameScopes = cache.get("api-client", List.of("write", "read"));
+        TokenResponse otherScopes = cache.get("api-client", List.of("read"));
+        TokenResponse otherClient = cache.get("other-client", List.of("read", "write"));
+
+        // Then
+        assertThat(sameScopes.getAccessToken()).isEqualTo("token-1");
+        assertThat(sameScopes.getExpiresIn()).isBetween(3590L, 3600L);
+        assertThat(otherScopes).isNull();
+        assertThat(otherClient).isNull();
+        assertThat(meterRegistry.counter("oauth2.client.token.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void get_ShouldNotReuseToken_OnceTooLittleLifetimeRemains() {
+        // Given
+        ClientTokenCache cache = createCache(1.0);
+        cache.put("api-client", List.of("read"), "jti-1", response("token-1"));
+
+        // When
+        TokenResponse reused = cache.get("api-client", List.of("read"));
+
+        // Then
+        assertThat(reused).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_ShouldNotReuseRevokedToken() {
+        // Given
+        cache.put("api-client", List.of("read"), "jti-1", response("token-1"));
+        when(revocationIndex.isRevoked("jti-1")).thenReturn(true);
+
+        // When
+        TokenResponse reused = cache.get("api-client", List.of("read"));
+
+        // Then
+        assertThat(reused).isNull();
+    }
+
+    @Test
+    void purgeExpired_ShouldDropEntriesNoLongerReusable_WithoutAnyLookup() {
+        // Given
+        cache.put("api-client", List.of("read"), "jti-1", response("token-1"));
+        cache.put("batch-client", List.of("read"), "jti-2", new TokenResponse("token-2", "Bearer", 0L, "refresh", "read"));
+
+        // When
+        cache.purgeExpired();
+
+        // Then
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("oauth2.client.token.cache.evictions").count()).isEqualTo(1.0);
+        assertThat(cache.get("api-client", List.of("read"))).isNotNull();
+    }
+}
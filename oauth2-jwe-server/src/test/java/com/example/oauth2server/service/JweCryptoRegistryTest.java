@@ -0,0 +1,193 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.JweCryptoRegistry;
+import com.example.oauth2.service.JweHeaderTemplate;
+import com.example.oauth2.service.JweKey;
+import com.example.oauth2.service.RandomIdService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+
+class JweCryptoRegistryTest {
+
+    private static JweCryptoRegistry createRegistry(String encryptionKey, String signingKey, long retentionMs) {
+        return createRegistry(encryptionKey, signingKey, retentionMs, "");
+    }
+
+    private static JweCryptoRegistry createRegistry(String encryptionKey, String signingKey, long retentionMs,
+                                                    String keyringFile) {
+        return new JweCryptoRegistry("k1", encryptionKey, signingKey, retentionMs, "buffered", keyringFile,
+                new RandomIdService());
+    }
+
+    @Test
+    void init_ShouldBuildCryptoObjectsOnce() {
+        // Given
+        JweCryptoRegistry registry = createRegistry("test-encryption-key-32-character",
+                "test-signing-key-must-be-32-chars", 3_600_000L);
+
+        // When
+        registry.init();
+
+        // Then
+        JweKey key = registry.getActiveKey();
+        assertThat(key.getKeyId()).isEqualTo("k1");
+        assertThat(key.getEncryptionKey().getEncoded()).hasSize(32);
+        assertThat(key.getEncrypter()).isNotNull();
+        assertThat(key.getDecrypter()).isNotNull();
+        assertThat(key.getSigner()).isNotNull();
+        assertThat(key.getVerifier()).isNotNull();
+        assertThat(registry.findKey("k1")).isSameAs(key);
+    }
+
+    @Test
+    void init_ShouldFailFast_WhenEncryptionKeyHasInvalidLength() {
+        // Given
+        JweCryptoRegistry registry = createRegistry("too-short", "test-signing-key-must-be-32-chars", 3_600_000L);
+
+        // When & Then
+        assertThatThrownBy(registry::init)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Invalid JWE key configuration");
+    }
+
+    private static void writeKeyring(Path file, String content, long modifiedMillis) throws Exception {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    }
+
+    @Test
+    void reloadKeyringFile_ShouldActivateNewKey_AndKeepRetiredKeyAcrossRestarts(@TempDir Path dir) throws Exception {
+        // Given
+        Path file = dir.resolve("keyring.properties");
+        writeKeyring(file, """
+                active=k1
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                """, 1_000L);
+        JweCryptoRegistry registry = createRegistry("unused", "unused", 3_600_000L, file.toString());
+        registry.init();
+        String retireAt = Instant.now().plusSeconds(3600).toString();
+
+        // When
+        writeKeyring(file, """
+                active=k2
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                k1.retire-at=%s
+                k2.encryption-key=rotated-encryption-key-32-chars!
+                k2.signing-key=rotated-signing-key-32-characters
+                """.formatted(retireAt), 2_000L);
+        registry.pollKeyringFile();
+        JweCryptoRegistry restarted = createRegistry("unused", "unused", 3_600_000L, file.toString());
+        restarted.init();
+
+        // Then
+        for (JweCryptoRegistry node : new JweCryptoRegistry[] {registry, restarted}) {
+            assertThat(node.getActiveKey().getKeyId()).isEqualTo("k2");
+            assertThat(node.findKey("k1")).isNotNull();
+            assertThat(node.findKey("k1").getRetireAt()).isEqualTo(Instant.parse(retireAt));
+        }
+    }
+
+    @Test
+    void reloadKeyringFile_ShouldKeepAKeyDroppedFromTheFile_DecryptOnly(@TempDir Path dir) throws Exception {
+        // Given
+        Path file = dir.resolve("keyring.properties");
+        writeKeyring(file, """
+                active=k1
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                """, 1_000L);
+        JweCryptoRegistry registry = createRegistry("unused", "unused", 3_600_000L, file.toString());
+        registry.init();
+
+        // When
+        writeKeyring(file, """
+                active=k2
+                k2.encryption-key=rotated-encryption-key-32-chars!
+                k2.signing-key=rotated-signing-key-32-characters
+                """, 2_000L);
+        registry.pollKeyringFile();
+
+        // Then
+        assertThat(registry.getActiveKey().getKeyId()).isEqualTo("k2");
+        assertThat(registry.findKey("k1")).isNotNull();
+        assertThat(registry.findKey("k1").getRetireAt()).isNotNull();
+        assertThat(registry.findKey("unknown")).isNull();
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    void purgeRetiredKeys_ShouldDropKeysPastRetention(@TempDir Path dir) throws Exception {
+        // Given
+        Path file = dir.resolve("keyring.properties");
+        writeKeyring(file, """
+                active=k1
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                """, 1_000L);
+        JweCryptoRegistry registry = createRegistry("unused", "unused", 0L, file.toString());
+        registry.init();
+        writeKeyring(file, """
+                active=k2
+                k2.encryption-key=rotated-encryption-key-32-chars!
+                k2.signing-key=rotated-signing-key-32-characters
+                """, 2_000L);
+        registry.reloadKeyringFile();
+
+        // When
+        registry.purgeRetiredKeys();
+
+        // Then
+        assertThat(registry.findKey("k1")).isNull();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void matchHeaderTemplate_ShouldFindTheTemplateByTheTokensFirstSegment() {
+        // Given
+        JweCryptoRegistry registry = createRegistry("test-encryption-key-32-character",
+                "test-signing-key-must-be-32-chars", 3_600_000L);
+        registry.init();
+
+        // When & Then
+        for (JweHeaderTemplate template : registry.getActiveKey().getHeaderTemplates()) {
+            assertThat(registry.matchHeaderTemplate(template.getPrefix() + ".iv.ciphertext.tag")).isSameAs(template);
+        }
+        assertThat(registry.matchHeaderTemplate("eyJhbGciOiJkaXIifQ..iv.ciphertext.tag")).isNull();
+        assertThat(registry.matchHeaderTemplate("no-dot")).isNull();
+    }
+
+    @Test
+    void reloadKeyringFile_ShouldKeepCurrentKeyring_WhenKeyMaterialOfKnownIdChanges(@TempDir Path dir) throws Exception {
+        // Given
+        Path file = dir.resolve("keyring.properties");
+        writeKeyring(file, """
+                active=k1
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                """, 1_000L);
+        JweCryptoRegistry registry = createRegistry("unused", "unused", 3_600_000L, file.toString());
+        registry.init();
+        JweKey before = registry.getActiveKey();
+
+        // When
+        writeKeyring(file, """
+                active=k1
+                k1.encryption-key=rotated-encryption-key-32-chars!
+                k1.signing-key=rotated-signing-key-32-characters
+                """, 2_000L);
+        boolean reloaded = registry.reloadKeyringFile();
+
+        // Then
+        assertThat(reloaded).isFalse();
+        assertThat(registry.getActiveKey()).isSameAs(before);
+    }
+}
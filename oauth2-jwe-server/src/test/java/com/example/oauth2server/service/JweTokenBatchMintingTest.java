@@ -0,0 +1,79 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.JweCryptoRegistry;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenClaimsCache;
+import com.example.oauth2.service.TokenClaimsCodec;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.TokenRejectionCache;
+import com.example.oauth2.service.TokenSpec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class JweTokenBatchMintingTest {
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    private JweTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RandomIdService randomIdService = new RandomIdService();
+        JweCryptoRegistry cryptoRegistry = new JweCryptoRegistry("k1", "test-encryption-key-32-character",
+                "test-signing-key-must-be-32-chars", 3_600_000L, "buffered", "", randomIdService);
+        cryptoRegistry.init();
+        TokenClaimsCache claimsCache = new TokenClaimsCache(false, 100, meterRegistry);
+        claimsCache.init();
+        TokenClaimsCodec claimsCodec = new TokenClaimsCodec("standard",
+                List.of("ADMIN", "USER", "API_READ", "API_WRITE", "API_CLIENT"), List.of("read", "write", "admin"));
+        claimsCodec.init();
+        TokenRejectionCache rejectionCache = new TokenRejectionCache(false, 100, 60_000L, meterRegistry);
+        rejectionCache.init();
+
+        service = new JweTokenService(cryptoRegistry, claimsCache, claimsCodec, rejectionCache, randomIdService,
+                revocationIndex, tokenEpochIndex, 8192, "encrypt-only", false, 4);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void generateJweTokens_ShouldMintInParallel_AndKeepSpecOrder() {
+        // Given
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        List<TokenSpec> specs = IntStream.range(0, 200)
+                .mapToObj(i -> new TokenSpec(null, (long) i, "user" + i, List.of("USER"), "oauth2-client", List.of("read"), expiresAt))
+                .toList();
+
+        // When
+        List<String> tokens = service.generateJweTokens(specs);
+
+        // Then
+        assertThat(tokens).hasSize(200).doesNotHaveDuplicates();
+        for (int i = 0; i < tokens.size(); i++) {
+            assertThat(service.decode(tokens.get(i)).getUserId()).isEqualTo((long) i);
+        }
+    }
+}
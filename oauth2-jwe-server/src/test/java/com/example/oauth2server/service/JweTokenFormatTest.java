@@ -0,0 +1,207 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.security.TokenPrincipal;
+import com.example.oauth2.service.JweCryptoRegistry;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenClaimsCache;
+import com.example.oauth2.service.TokenClaimsCodec;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.TokenRejectionCache;
+import com.example.oauth2.service.TokenValidationResult;
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jwt.JWTClaimsSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class JweTokenFormatTest {
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    private SimpleMeterRegistry meterRegistry;
+    private JweCryptoRegistry cryptoRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cryptoRegistry = new JweCryptoRegistry("k1", "test-encryption-key-32-character",
+                "test-signing-key-must-be-32-chars", 3_600_000L, "buffered", "", new RandomIdService());
+        cryptoRegistry.init();
+    }
+
+    private JweTokenService createService(String format, String claimsProfile, boolean compress) {
+        TokenClaimsCache claimsCache = new TokenClaimsCache(false, 100, meterRegistry);
+        claimsCache.init();
+        TokenClaimsCodec claimsCodec = new TokenClaimsCodec(claimsProfile,
+                List.of("ADMIN", "USER", "API_READ", "API_WRITE", "API_CLIENT"), List.of("read", "write", "admin"));
+        claimsCodec.init();
+        TokenRejectionCache rejectionCache = new TokenRejectionCache(false, 100, 60_000L, meterRegistry);
+        rejectionCache.init();
+
+        JweTokenService service = new JweTokenService(cryptoRegistry, claimsCache, claimsCodec, rejectionCache,
+                new RandomIdService(), revocationIndex, tokenEpochIndex, 8192, format, compress, 1);
+        service.init();
+        return service;
+    }
+
+    private JweTokenService createService(String format) {
+        return createService(format, "standard", false);
+    }
+
+    private static String issue(JweTokenService service) {
+        return service.generateJweToken(1L, "testuser", List.of("USER"), "test-client",
+                List.of("read"), LocalDateTime.now().plusHours(1));
+    }
+
+    @Test
+    void encryptOnly_ShouldRoundTripWithoutContentType() throws Exception {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+
+        // When
+        String token = issue(service);
+        JWTClaimsSet claims = service.validateAndParseToken(token);
+
+        // Then
+        assertThat(JWEObject.parse(token).getHeader().getContentType()).isNull();
+        assertThat(claims.getSubject()).isEqualTo("testuser");
+        assertThat(claims.getStringListClaim("scopes")).containsExactly("read");
+    }
+
+    @Test
+    void nested_ShouldEmbedSignedJwtAndVerifyItOnDecode() throws Exception {
+        // Given
+        JweTokenService service = createService("nested");
+
+        // When
+        String token = issue(service);
+        JWTClaimsSet claims = service.validateAndParseToken(token);
+
+        // Then
+        assertThat(JWEObject.parse(token).getHeader().getContentType()).isEqualTo("JWT");
+        assertThat(claims.getSubject()).isEqualTo("testuser");
+    }
+
+    @Test
+    void validate_ShouldPickProfileFromHeader_RegardlessOfIssuingFormat() {
+        // Given
+        String nestedToken = issue(createService("nested"));
+        JweTokenService encryptOnlyService = createService("encrypt-only");
+
+        // When & Then
+        assertThat(encryptOnlyService.validateAndParseToken(nestedToken).getSubject()).isEqualTo("testuser");
+    }
+
+    @Test
+    void compactClaims_ShouldEncodeBitsetsAndDecodeToSamePrincipal() throws Exception {
+        // Given
+        JweTokenService service = createService("encrypt-only", "compact", true);
+
+        // When
+        String token = service.generateJweToken(7L, "testuser", List.of("USER", "CUSTOM_ROLE"), "test-client",
+                List.of("read", "write"), LocalDateTime.now().plusHours(1));
+        JWTClaimsSet claims = service.validateAndParseToken(token);
+        TokenPrincipal principal = service.decode(token);
+
+        // Then
+        assertThat(JWEObject.parse(token).getHeader().getCompressionAlgorithm()).isEqualTo(CompressionAlgorithm.DEF);
+        assertThat(claims.getClaim("username")).isNull();
+        assertThat(claims.getClaim("client_id")).isNull();
+        assertThat(claims.getLongClaim("rb")).isEqualTo(0b10L);
+        assertThat(claims.getLongClaim("sb")).isEqualTo(0b11L);
+        assertThat(principal.getUserId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("testuser");
+        assertThat(principal.getClientId()).isEqualTo("test-client");
+        assertThat(principal.getRoles()).containsExactly("USER", "CUSTOM_ROLE");
+        assertThat(principal.getScopes()).containsExactly("read", "write");
+    }
+
+    @Test
+    void compactClaims_ShouldProduceSmallerTokens() {
+        // Given
+        String standard = issue(createService("encrypt-only", "standard", false));
+        String compact = issue(createService("encrypt-only", "compact", false));
+
+        // When & Then
+        assertThat(compact.length()).isLessThan(standard.length());
+    }
+
+    @Test
+    void generate_ShouldUsePrecomputedHeader_AndStayReadableByStockNimbus() throws Exception {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+
+        // When
+        String token = issue(service);
+        EncryptedJWT parsed = EncryptedJWT.parse(token);
+        parsed.decrypt(new DirectDecrypter(cryptoRegistry.getActiveKey().getEncryptionKey()));
+
+        // Then
+        assertThat(token).startsWith(cryptoRegistry.getActiveKey().getHeaderTemplate(false, false).getPrefix());
+        assertThat(cryptoRegistry.matchHeaderTemplate(token)).isNotNull();
+        assertThat(parsed.getJWTClaimsSet().getSubject()).isEqualTo("testuser");
+    }
+
+    @Test
+    void validate_ShouldRejectUnknownHeaderLayout_EvenWithAKnownKid() throws Exception {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+        JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A256GCM)
+                .type(JOSEObjectType.JWT)
+                .keyID("k1")
+                .build();
+        EncryptedJWT foreign = new EncryptedJWT(header, new JWTClaimsSet.Builder()
+                .subject("foreign")
+                .expirationTime(new Date(System.currentTimeMillis() + 60_000))
+                .build());
+        foreign.encrypt(new DirectEncrypter(cryptoRegistry.getActiveKey().getEncryptionKey()));
+        String token = foreign.serialize();
+
+        // When & Then
+        assertThat(cryptoRegistry.matchHeaderTemplate(token)).isNull();
+        assertThat(service.validate(token).getReason()).isEqualTo(TokenValidationResult.Reason.BAD_FORMAT);
+    }
+
+    @Test
+    void validate_ShouldRejectTamperedHeaderSegment() {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+        String token = issue(service);
+        String tampered = token.replaceFirst("\\.\\.", ".AAAA.");
+
+        // When & Then
+        assertThatThrownBy(() -> service.validateAndParseToken(tampered))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void init_ShouldRejectUnknownFormat() {
+        assertThatThrownBy(() -> createService("plain"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unsupported token format");
+    }
+}
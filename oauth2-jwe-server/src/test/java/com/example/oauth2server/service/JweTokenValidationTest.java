@@ -0,0 +1,311 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.InvalidTokenException;
+import com.example.oauth2.service.JweCryptoRegistry;
+import com.example.oauth2.service.JweHeaderTemplate;
+import com.example.oauth2.service.JweKey;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenClaimsCache;
+import com.example.oauth2.service.TokenClaimsCodec;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.TokenRejectionCache;
+import com.example.oauth2.service.TokenValidationResult;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWECryptoParts;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JweTokenValidationTest {
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    private SimpleMeterRegistry meterRegistry;
+    private JweCryptoRegistry cryptoRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cryptoRegistry = new JweCryptoRegistry("k1", "test-encryption-key-32-character",
+                "test-signing-key-must-be-32-chars", 3_600_000L, "buffered", "", new RandomIdService());
+        cryptoRegistry.init();
+    }
+
+    private JweTokenService createService(String format, String claimsProfile, boolean claimsCacheEnabled) {
+        TokenClaimsCache claimsCache = new TokenClaimsCache(claimsCacheEnabled, 100, meterRegistry);
+        claimsCache.init();
+        TokenClaimsCodec claimsCodec = new TokenClaimsCodec(claimsProfile,
+                List.of("ADMIN", "USER", "API_READ", "API_WRITE", "API_CLIENT"), List.of("read", "write", "admin"));
+        claimsCodec.init();
+        TokenRejectionCache rejectionCache = new TokenRejectionCache(true, 100, 60_000L, meterRegistry);
+        rejectionCache.init();
+
+        JweTokenService service = new JweTokenService(cryptoRegistry, claimsCache, claimsCodec, rejectionCache,
+                new RandomIdService(), revocationIndex, tokenEpochIndex, 8192, format, false, 1);
+        service.init();
+        return service;
+    }
+
+    private JweTokenService createService(String format) {
+        return createService(format, "standard", false);
+    }
+
+    private static String issue(JweTokenService service) {
+        return service.generateJweToken(1L, "testuser", List.of("USER"), "test-client",
+                List.of("read"), LocalDateTime.now().plusHours(1));
+    }
+
+    @Test
+    void validate_ShouldRejectMalformedTokens_BeforeAnyCrypto() {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+        String token = issue(service);
+        String[] parts = token.split("\\.", -1);
+
+        // When & Then
+        assertThat(service.isTokenValid(null)).isFalse();
+        assertThat(service.isTokenValid("not-a-token")).isFalse();
+        assertThat(service.isTokenValid(token + ".extra")).isFalse();
+        assertThat(service.isTokenValid(token.replace("..", ".AAAA."))).isFalse();
+        assertThat(service.isTokenValid(parts[0] + ".." + parts[2] + "." + parts[3] + "!." + parts[4])).isFalse();
+        assertThat(service.isTokenValid(token + "A".repeat(8192))).isFalse();
+        assertThat(service.isTokenValid(token)).isTrue();
+        assertThat(meterRegistry.counter("jwe.rejection.cache.hits").count()).isZero();
+    }
+
+    @Test
+    void validate_ShouldRejectUnknownHeaders_AsMalformed() throws Exception {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+        String token = issue(service);
+        JWEHeader header = JWEObject.parse(token).getHeader();
+        String afterHeader = token.substring(token.indexOf('.'));
+        String unknownKid = new JWEHeader.Builder(header).keyID("unknown").build().toBase64URL() + afterHeader;
+        String noKid = new JWEHeader.Builder(header).keyID(null).build().toBase64URL() + afterHeader;
+
+        // When & Then
+        assertThat(service.validate(unknownKid).getReason()).isEqualTo(TokenValidationResult.Reason.BAD_FORMAT);
+        assertThat(service.validate(noKid).getReason()).isEqualTo(TokenValidationResult.Reason.BAD_FORMAT);
+        assertThat(service.validate(token).isValid()).isTrue();
+    }
+
+    @Test
+    void validate_ShouldAcceptBaselineTokensWithoutKid_UntilTheyHaveExpired() throws Exception {
+        // Given: a token as issued before the keyring, bare claims under a kid-less cty=JWT header
+        EncryptedJWT baseline = new EncryptedJWT(
+                new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A256GCM).contentType("JWT").build(),
+                new JWTClaimsSet.Builder()
+                        .subject("testuser")
+                        .issuer("oauth2-jwe-server")
+                        .audience("test-client")
+                        .expirationTime(new Date(System.currentTimeMillis() + 60_000))
+                        .claim("user_id", 1L)
+                        .claim("username", "testuser")
+                        .claim("roles", List.of("USER"))
+                        .claim("client_id", "test-client")
+                        .claim("scopes", List.of("read"))
+                        .build());
+        baseline.encrypt(new DirectEncrypter("test-encryption-key-32-character".getBytes(StandardCharsets.UTF_8)));
+        String token = baseline.serialize();
+        JweTokenService service = createService("encrypt-only");
+
+        // When
+        TokenValidationResult result = service.validate(token);
+        cryptoRegistry = new JweCryptoRegistry("k1", "test-encryption-key-32-character",
+                "test-signing-key-must-be-32-chars", 0L, "buffered", "", new RandomIdService());
+        cryptoRegistry.init();
+        TokenValidationResult afterWindow = createService("encrypt-only").validate(token);
+
+        // Then
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getClaims().getSubject()).isEqualTo("testuser");
+        assertThat(afterWindow.getReason()).isEqualTo(TokenValidationResult.Reason.BAD_FORMAT);
+    }
+
+    @Test
+    void validate_ShouldRememberForgedTokens_AndRejectReplaysFromCache() {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+        String token = issue(service);
+        int tagStart = token.lastIndexOf('.') + 1;
+        String forged = token.substring(0, tagStart) + (token.charAt(tagStart) == 'A' ? 'B' : 'A') + token.substring(tagStart + 1);
+
+        // When
+        boolean first = service.isTokenValid(forged);
+        boolean replay = service.isTokenValid(forged);
+
+        // Then
+        assertThat(first).isFalse();
+        assertThat(replay).isFalse();
+        assertThat(meterRegistry.counter("jwe.rejection.cache.hits").count()).isEqualTo(1.0);
+        assertThat(service.isTokenValid(token)).isTrue();
+    }
+
+    @Test
+    void validate_ShouldReturnReasonWithoutThrowing() {
+        // Given
+        JweTokenService service = createService("encrypt-only");
+        String expired = service.generateJweToken(1L, "testuser", List.of("USER"), "oauth2-client",
+                List.of("read"), LocalDateTime.now().minusMinutes(1));
+        String valid = issue(service);
+        String forged = valid.substring(0, valid.lastIndexOf('.') + 1) + "A".repeat(22);
+
+        // When
+        TokenValidationResult validResult = service.validate(valid);
+        TokenValidationResult expiredResult = service.validate(expired);
+        TokenValidationResult forgedResult = service.validate(forged);
+        TokenValidationResult malformedResult = service.validate("garbage");
+
+        // Then
+        assertThat(validResult.isValid()).isTrue();
+        assertThat(validResult.getClaims().getSubject()).isEqualTo("testuser");
+        assertThat(expiredResult.getReason()).isEqualTo(TokenValidationResult.Reason.EXPIRED);
+        assertThat(forgedResult.getReason()).isEqualTo(TokenValidationResult.Reason.DECRYPT_FAIL);
+        assertThat(malformedResult).isSameAs(TokenValidationResult.failure(TokenValidationResult.Reason.BAD_FORMAT));
+        assertThat(service.validate(expired).getReason()).isEqualTo(TokenValidationResult.Reason.EXPIRED);
+        assertThatThrownBy(() -> service.validateAndParseToken(expired))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessage("Invalid JWE token: expired");
+    }
+
+    @Test
+    void validate_ShouldReportDecryptFailure_ForANestedTokenSignedWithAnotherKey() throws Exception {
+        // Given
+        JweTokenService service = createService("nested");
+        JweKey key = cryptoRegistry.getActiveKey();
+        JweHeaderTemplate template = key.getHeaderTemplate(true, false);
+        SignedJWT signedJWT = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID(key.getKeyId()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject("forged")
+                        .expirationTime(new Date(System.currentTimeMillis() + 60_000))
+                        .build());
+        signedJWT.sign(new MACSigner("another-signing-key-of-32-chars!!"));
+        JWECryptoParts parts = key.getEncrypter().encrypt(template.getHeader(),
+                signedJWT.serialize().getBytes(StandardCharsets.UTF_8), template.getAad());
+        String token = template.getPrefix() + "." + parts.getInitializationVector() + "."
+                + parts.getCipherText() + "." + parts.getAuthenticationTag();
+
+        // When
+        TokenValidationResult result = service.validate(token);
+
+        // Then
+        assertThat(result.getReason()).isEqualTo(TokenValidationResult.Reason.DECRYPT_FAIL);
+        assertThat(service.validate(issue(service)).isValid()).isTrue();
+    }
+
+    @Test
+    void validate_ShouldAcceptTokensOfRotatedKey_AndStampActiveKid(@TempDir Path dir) throws Exception {
+        // Given
+        Path file = dir.resolve("keyring.properties");
+        writeKeyring(file, """
+                active=k1
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                """, 1_000L);
+        cryptoRegistry = new JweCryptoRegistry("k1", "unused", "unused", 3_600_000L, "buffered", file.toString(),
+                new RandomIdService());
+        cryptoRegistry.init();
+        JweTokenService service = createService("encrypt-only");
+        String oldToken = issue(service);
+
+        // When
+        writeKeyring(file, """
+                active=k2
+                k1.encryption-key=test-encryption-key-32-character
+                k1.signing-key=test-signing-key-must-be-32-chars
+                k1.retire-at=%s
+                k2.encryption-key=rotated-encryption-key-32-chars!
+                k2.signing-key=rotated-signing-key-32-characters
+                """.formatted(Instant.now().plusSeconds(3600)), 2_000L);
+        cryptoRegistry.pollKeyringFile();
+        String newToken = issue(service);
+
+        // Then
+        assertThat(JWEObject.parse(oldToken).getHeader().getKeyID()).isEqualTo("k1");
+        assertThat(JWEObject.parse(newToken).getHeader().getKeyID()).isEqualTo("k2");
+        assertThat(service.validateAndParseToken(oldToken).getSubject()).isEqualTo("testuser");
+        assertThat(service.validateAndParseToken(newToken).getSubject()).isEqualTo("testuser");
+    }
+
+    private static void writeKeyring(Path file, String content, long modifiedMillis) throws Exception {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    }
+
+    @Test
+    void validate_ShouldRejectRevokedTokenId_EvenWhenClaimsAreCached() {
+        // Given
+        JweTokenService service = createService("encrypt-only", "standard", true);
+        when(revocationIndex.isEnabled()).thenReturn(true);
+        when(revocationIndex.isRevoked("token-1")).thenReturn(false, true);
+        String token = service.generateJweToken("token-1", 1L, "testuser", List.of("USER"), "test-client",
+                List.of("read"), LocalDateTime.now().plusHours(1), 0);
+        assertThat(service.validate(token).getClaims().getJWTID()).isEqualTo("token-1");
+
+        // When
+        TokenValidationResult result = service.validate(token);
+
+        // Then
+        assertThat(result.getReason()).isEqualTo(TokenValidationResult.Reason.REVOKED);
+        assertThat(meterRegistry.counter("jwe.claims.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void validate_ShouldRejectTokensOfAnOlderUserEpoch_InBothClaimProfiles() {
+        when(tokenEpochIndex.isEnabled()).thenReturn(true);
+        when(tokenEpochIndex.currentEpoch(7L)).thenReturn(1);
+        when(tokenEpochIndex.currentEpoch(8L)).thenReturn(0);
+
+        for (String claimsProfile : List.of("standard", "compact")) {
+            // Given
+            JweTokenService service = createService("encrypt-only", claimsProfile, false);
+            LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+            String beforeLogout = service.generateJweToken("token-1", 7L, "testuser", List.of("USER"),
+                    "test-client", List.of("read"), expiresAt, 0);
+            String otherUser = service.generateJweToken("token-2", 8L, "other", List.of("USER"),
+                    "test-client", List.of("read"), expiresAt, 0);
+
+            // When
+            String afterLogout = service.generateJweToken("token-3", 7L, "testuser", List.of("USER"),
+                    "test-client", List.of("read"), expiresAt, 1);
+
+            // Then
+            assertThat(service.validate(beforeLogout).getReason()).isEqualTo(TokenValidationResult.Reason.REVOKED);
+            assertThat(service.validate(otherUser).isValid()).isTrue();
+            assertThat(service.validate(afterLogout).isValid()).isTrue();
+        }
+    }
+}
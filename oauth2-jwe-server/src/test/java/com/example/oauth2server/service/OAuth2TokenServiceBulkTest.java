@@ -0,0 +1,136 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.dto.BulkTokenRequest;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.service.AccessTokenWriter;
+import com.example.oauth2.service.ClientRegistry;
+import com.example.oauth2.service.ClientRegistry.RegisteredClient;
+import com.example.oauth2.service.ClientTokenCache;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RefreshGraceCache;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.TokenSpec;
+import com.example.oauth2.service.UserCache;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OAuth2TokenServiceBulkTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    @Mock
+    private AccessTokenWriter accessTokenWriter;
+
+    @Mock
+    private PasswordHashingBulkhead passwordHashingBulkhead;
+
+    @Mock
+    private VerifiedCredentialCache credentialCache;
+
+    @Mock
+    private RandomIdService randomIdService;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private RefreshGraceCache refreshGraceCache;
+
+    @Mock
+    private ClientRegistry clientRegistry;
+
+    @Mock
+    private ClientTokenCache clientTokenCache;
+
+    private OAuth2TokenService createService(boolean bulkEnabled, int bulkChunkSize) {
+        return new OAuth2TokenService(jweTokenService, usuarioRepository, accessTokenRepository,
+                accessTokenWriter, passwordHashingBulkhead, credentialCache, randomIdService, revocationIndex,
+                tokenEpochIndex, userCache, refreshGraceCache, clientRegistry, clientTokenCache,
+                bulkEnabled, 10, bulkChunkSize);
+    }
+
+    @Test
+    void validateBulkRequest_ShouldFail_WhenBulkIssuanceIsDisabled() {
+        // Given
+        OAuth2TokenService oauth2TokenService = createService(false, 500);
+
+        // When & Then
+        assertThatThrownBy(() -> oauth2TokenService.validateBulkRequest(createBulkRequest(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bulk issuance is disabled");
+        verifyNoInteractions(clientRegistry);
+    }
+
+    @Test
+    void validateBulkRequest_ShouldRejectACountAboveTheLimit() {
+        // Given
+        OAuth2TokenService oauth2TokenService = createService(true, 500);
+
+        // When & Then
+        assertThatThrownBy(() -> oauth2TokenService.validateBulkRequest(createBulkRequest(11)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Count must be between 1 and 10");
+        verify(clientRegistry).authenticate("api-client", "secret", "client_credentials", List.of("read"));
+    }
+
+    @Test
+    void issueBulkClientTokens_ShouldStoreOneBatchPerChunk_BeforeHandingItToTheSink() {
+        // Given
+        OAuth2TokenService oauth2TokenService = createService(true, 2);
+        RegisteredClient client = new RegisteredClient("api-client", "hash", Set.of("read"), Set.of("client_credentials"));
+        when(jweTokenService.generateRefreshToken()).thenReturn("refresh-token");
+        when(jweTokenService.generateJweTokens(anyList())).thenAnswer(invocation -> invocation.<List<TokenSpec>>getArgument(0)
+                .stream()
+                .map(spec -> "jwe-" + spec.getUsername())
+                .toList());
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        // When
+        int issued = oauth2TokenService.issueBulkClientTokens(createBulkRequest(5), client,
+                chunk -> chunkSizes.add(chunk.size()));
+
+        // Then
+        assertThat(issued).isEqualTo(5);
+        assertThat(chunkSizes).containsExactly(2, 2, 1);
+        verify(accessTokenRepository, times(3)).saveAll(anyList());
+        verifyNoInteractions(accessTokenWriter);
+    }
+
+    private BulkTokenRequest createBulkRequest(int count) {
+        BulkTokenRequest request = new BulkTokenRequest();
+        request.setClient_id("api-client");
+        request.setClient_secret("secret");
+        request.setCount(count);
+        return request;
+    }
+}
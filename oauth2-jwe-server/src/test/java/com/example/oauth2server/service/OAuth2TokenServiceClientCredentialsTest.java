@@ -0,0 +1,153 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.dto.TokenRequest;
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.service.AccessTokenWriter;
+import com.example.oauth2.service.ClientRegistry;
+import com.example.oauth2.service.ClientTokenCache;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RefreshGraceCache;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.UserCache;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OAuth2TokenServiceClientCredentialsTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    @Mock
+    private AccessTokenWriter accessTokenWriter;
+
+    @Mock
+    private PasswordHashingBulkhead passwordHashingBulkhead;
+
+    @Mock
+    private VerifiedCredentialCache credentialCache;
+
+    @Mock
+    private RandomIdService randomIdService;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private RefreshGraceCache refreshGraceCache;
+
+    @Mock
+    private ClientRegistry clientRegistry;
+
+    @Mock
+    private ClientTokenCache clientTokenCache;
+
+    private OAuth2TokenService oauth2TokenService;
+
+    @BeforeEach
+    void setUp() {
+        oauth2TokenService = new OAuth2TokenService(jweTokenService, usuarioRepository, accessTokenRepository,
+                accessTokenWriter, passwordHashingBulkhead, credentialCache, randomIdService, revocationIndex,
+                tokenEpochIndex, userCache, refreshGraceCache, clientRegistry, clientTokenCache, false, 10000, 500);
+    }
+
+    @Test
+    void generateToken_ShouldAuthenticateWithTheRequestedScopes_AndStoreTheToken() {
+        // Given
+        givenMinting();
+
+        // When
+        TokenResponse response = oauth2TokenService.generateToken(createClientCredentialsRequest());
+
+        // Then
+        assertThat(response.getAccessToken()).isEqualTo("jwe-token");
+        assertThat(response.getScope()).isEqualTo("read write");
+        verify(clientRegistry).authenticate("api-client", "secret", "client_credentials", List.of("read", "write"));
+        verify(accessTokenWriter).write(any(AccessToken.class));
+    }
+
+    @Test
+    void generateToken_ShouldCacheTheMintedToken() {
+        // Given
+        givenMinting();
+
+        // When
+        TokenResponse response = oauth2TokenService.generateToken(createClientCredentialsRequest());
+
+        // Then
+        verify(clientTokenCache).put("api-client", List.of("read", "write"), "token-id", response);
+    }
+
+    @Test
+    void generateToken_ShouldReuseACachedToken_WithoutMinting() {
+        // Given
+        TokenResponse cached = new TokenResponse("cached-token", "Bearer", 3600L, "cached-refresh", "read write");
+        when(clientTokenCache.get("api-client", List.of("read", "write"))).thenReturn(cached);
+
+        // When
+        TokenResponse response = oauth2TokenService.generateToken(createClientCredentialsRequest());
+
+        // Then
+        assertThat(response).isSameAs(cached);
+        verify(clientRegistry).authenticate("api-client", "secret", "client_credentials", List.of("read", "write"));
+        verifyNoInteractions(jweTokenService, accessTokenWriter);
+    }
+
+    @Test
+    void generateToken_ShouldFail_WhenTheRegistryRejectsTheClient() {
+        // Given
+        when(clientRegistry.authenticate("api-client", "secret", "client_credentials", List.of("read", "write")))
+                .thenThrow(new IllegalArgumentException("Scope not allowed for client: write"));
+
+        // When & Then
+        assertThatThrownBy(() -> oauth2TokenService.generateToken(createClientCredentialsRequest()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Scope not allowed for client: write");
+        verifyNoInteractions(clientTokenCache, jweTokenService, accessTokenWriter);
+    }
+
+    private void givenMinting() {
+        when(randomIdService.newId()).thenReturn("token-id");
+        when(jweTokenService.generateRefreshToken()).thenReturn("refresh-token");
+        when(jweTokenService.generateJweToken(any(), any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn("jwe-token");
+    }
+
+    private TokenRequest createClientCredentialsRequest() {
+        TokenRequest request = new TokenRequest();
+        request.setGrant_type("client_credentials");
+        request.setClient_id("api-client");
+        request.setClient_secret("secret");
+        request.setScope("read write");
+        return request;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.dto.TokenRequest;
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.model.Usuario;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.service.AccessTokenWriter;
+import com.example.oauth2.service.ClientRegistry;
+import com.example.oauth2.service.ClientTokenCache;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RefreshGraceCache;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.UserCache;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OAuth2TokenServicePasswordGrantTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    @Mock
+    private AccessTokenWriter accessTokenWriter;
+
+    @Mock
+    private PasswordHashingBulkhead passwordHashingBulkhead;
+
+    @Mock
+    private VerifiedCredentialCache credentialCache;
+
+    @Mock
+    private RandomIdService randomIdService;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private RefreshGraceCache refreshGraceCache;
+
+    @Mock
+    private ClientRegistry clientRegistry;
+
+    @Mock
+    private ClientTokenCache clientTokenCache;
+
+    private OAuth2TokenService oauth2TokenService;
+
+    @BeforeEach
+    void setUp() {
+        oauth2TokenService = new OAuth2TokenService(jweTokenService, usuarioRepository, accessTokenRepository,
+                accessTokenWriter, passwordHashingBulkhead, credentialCache, randomIdService, revocationIndex,
+                tokenEpochIndex, userCache, refreshGraceCache, clientRegistry, clientTokenCache, false, 10000, 500);
+    }
+
+    @Test
+    void generateToken_ShouldVerifyThroughTheBulkhead_AndStoreTheRehashWithCompareAndSet() {
+        // Given
+        givenMinting();
+        when(usuarioRepository.findByLogin("testuser")).thenReturn(Optional.of(createTestUser()));
+        when(credentialCache.isVerified("testuser", "testpass", "old-hash")).thenReturn(false);
+        when(passwordHashingBulkhead.matches("testpass", "old-hash")).thenReturn(true);
+        when(passwordHashingBulkhead.needsRehash("old-hash")).thenReturn(true);
+        when(passwordHashingBulkhead.encode("testpass")).thenReturn("new-hash");
+        when(usuarioRepository.updatePasswordHash(1L, "old-hash", "new-hash")).thenReturn(true);
+
+        // When
+        TokenResponse response = oauth2TokenService.generateToken(createPasswordRequest());
+
+        // Then
+        assertThat(response.getAccessToken()).isEqualTo("jwe-token");
+        verify(usuarioRepository).updatePasswordHash(1L, "old-hash", "new-hash");
+        verify(credentialCache).recordVerified("testuser", "testpass", "new-hash");
+        verify(accessTokenWriter).write(any(AccessToken.class));
+    }
+
+    @Test
+    void generateToken_ShouldCacheTheOldHash_WhenAnotherNodeRehashedFirst() {
+        // Given
+        givenMinting();
+        when(usuarioRepository.findByLogin("testuser")).thenReturn(Optional.of(createTestUser()));
+        when(passwordHashingBulkhead.matches("testpass", "old-hash")).thenReturn(true);
+        when(passwordHashingBulkhead.needsRehash("old-hash")).thenReturn(true);
+        when(passwordHashingBulkhead.encode("testpass")).thenReturn("new-hash");
+        when(usuarioRepository.updatePasswordHash(1L, "old-hash", "new-hash")).thenReturn(false);
+
+        // When
+        oauth2TokenService.generateToken(createPasswordRequest());
+
+        // Then
+        verify(credentialCache).recordVerified("testuser", "testpass", "old-hash");
+    }
+
+    @Test
+    void generateToken_ShouldRecordTheCredential_OnceTheBulkheadVerifiedIt() {
+        // Given
+        givenMinting();
+        when(usuarioRepository.findByLogin("testuser")).thenReturn(Optional.of(createTestUser()));
+        when(passwordHashingBulkhead.matches("testpass", "old-hash")).thenReturn(true);
+
+        // When
+        TokenResponse response = oauth2TokenService.generateToken(createPasswordRequest());
+
+        // Then
+        assertThat(response.getAccessToken()).isEqualTo("jwe-token");
+        verify(credentialCache).recordVerified("testuser", "testpass", "old-hash");
+        verify(passwordHashingBulkhead, never()).encode(any());
+    }
+
+    @Test
+    void generateToken_ShouldSkipTheBulkhead_WhenTheCredentialIsCached() {
+        // Given
+        givenMinting();
+        when(usuarioRepository.findByLogin("testuser")).thenReturn(Optional.of(createTestUser()));
+        when(credentialCache.isVerified("testuser", "testpass", "old-hash")).thenReturn(true);
+
+        // When
+        oauth2TokenService.generateToken(createPasswordRequest());
+
+        // Then
+        verifyNoInteractions(passwordHashingBulkhead);
+        verify(credentialCache, never()).recordVerified(any(), any(), any());
+    }
+
+    @Test
+    void generateToken_ShouldRejectAWrongPassword_WithoutCachingIt() {
+        // Given
+        when(usuarioRepository.findByLogin("testuser")).thenReturn(Optional.of(createTestUser()));
+        when(passwordHashingBulkhead.matches("testpass", "old-hash")).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> oauth2TokenService.generateToken(createPasswordRequest()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid credentials");
+        verify(credentialCache, never()).recordVerified(any(), any(), any());
+        verify(accessTokenWriter, never()).write(any());
+    }
+
+    private void givenMinting() {
+        when(jweTokenService.generateRefreshToken()).thenReturn("refresh-token");
+        when(jweTokenService.generateJweToken(any(), any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn("jwe-token");
+    }
+
+    private TokenRequest createPasswordRequest() {
+        TokenRequest request = new TokenRequest();
+        request.setGrant_type("password");
+        request.setUsername("testuser");
+        request.setPassword("testpass");
+        request.setClient_id("test-client");
+        return request;
+    }
+
+    private Usuario createTestUser() {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setLogin("testuser");
+        usuario.setSenha("old-hash");
+        usuario.setAtivo(true);
+        usuario.setTokenEpoch(0);
+        usuario.setRoles(List.of());
+        return usuario;
+    }
+}
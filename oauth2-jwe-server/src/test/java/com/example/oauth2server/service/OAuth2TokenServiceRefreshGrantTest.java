@@ -0,0 +1,174 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.dto.TokenRequest;
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.model.AccessToken;
+import com.example.oauth2.model.Usuario;
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.service.AccessTokenWriter;
+import com.example.oauth2.service.ClientRegistry;
+import com.example.oauth2.service.ClientTokenCache;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RefreshGraceCache;
+import com.example.oauth2.service.RefreshGraceCache.RotatedToken;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.UserCache;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OAuth2TokenServiceRefreshGrantTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    @Mock
+    private AccessTokenWriter accessTokenWriter;
+
+    @Mock
+    private PasswordHashingBulkhead passwordHashingBulkhead;
+
+    @Mock
+    private VerifiedCredentialCache credentialCache;
+
+    @Mock
+    private RandomIdService randomIdService;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private RefreshGraceCache refreshGraceCache;
+
+    @Mock
+    private ClientRegistry clientRegistry;
+
+    @Mock
+    private ClientTokenCache clientTokenCache;
+
+    private OAuth2TokenService oauth2TokenService;
+
+    @BeforeEach
+    void setUp() {
+        oauth2TokenService = new OAuth2TokenService(jweTokenService, usuarioRepository, accessTokenRepository,
+                accessTokenWriter, passwordHashingBulkhead, credentialCache, randomIdService, revocationIndex,
+                tokenEpochIndex, userCache, refreshGraceCache, clientRegistry, clientTokenCache, false, 10000, 500);
+
+        // The grace cache runs the rotation it is handed
+        when(refreshGraceCache.rotateOnce(eq("old-refresh-token"), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<RotatedToken>>getArgument(1).get().response());
+    }
+
+    @Test
+    void generateToken_ShouldIssueAtTheCurrentEpoch_AndMarkTheOldTokenRevoked() {
+        // Given
+        givenStoredRefreshToken(2);
+        Usuario user = createTestUser(2);
+        when(userCache.get(1L)).thenReturn(null);
+        when(userCache.generation()).thenReturn(7L);
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(tokenEpochIndex.currentEpoch(1L)).thenReturn(1);
+        when(randomIdService.newId()).thenReturn("token-id");
+        when(jweTokenService.generateRefreshToken()).thenReturn("new-refresh-token");
+        when(jweTokenService.generateJweToken(any(), any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn("jwe-token");
+
+        // When
+        TokenResponse response = oauth2TokenService.generateToken(createRefreshRequest());
+
+        // Then
+        assertThat(response.getRefreshToken()).isEqualTo("new-refresh-token");
+        verify(accessTokenWriter).flush();
+        verify(userCache).put(user, 7L);
+        verify(jweTokenService).generateJweToken(eq("token-id"), eq(1L), eq("testuser"), any(),
+                eq("test-client"), any(), any(), eq(2));
+        verify(revocationIndex).markRevoked(eq("old-token-id"), any());
+    }
+
+    @Test
+    void generateToken_ShouldRejectARefreshTokenIssuedBeforeTheLastLogout() {
+        // Given
+        givenStoredRefreshToken(1);
+        when(userCache.get(1L)).thenReturn(createTestUser(1));
+        when(tokenEpochIndex.currentEpoch(1L)).thenReturn(2);
+
+        // When & Then
+        assertThatThrownBy(() -> oauth2TokenService.generateToken(createRefreshRequest()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Refresh token has been revoked");
+        verify(revocationIndex, never()).markRevoked(any(), any());
+        verify(jweTokenService, never()).generateJweToken(any(), any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void generateToken_ShouldRejectAnUnknownRefreshToken() {
+        // Given
+        when(accessTokenRepository.rotateRefreshToken(eq("old-refresh-token"), any())).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> oauth2TokenService.generateToken(createRefreshRequest()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid refresh token");
+        verifyNoInteractions(revocationIndex);
+    }
+
+    private void givenStoredRefreshToken(int tokenEpoch) {
+        AccessToken existing = new AccessToken("old-token-id", new byte[32], "old-refresh-token",
+                1L, "test-client", "read", LocalDateTime.now().plusHours(1));
+        existing.setTokenEpoch(tokenEpoch);
+        when(accessTokenRepository.rotateRefreshToken(eq("old-refresh-token"), any())).thenAnswer(invocation -> {
+            Function<AccessToken, AccessToken> rotation = invocation.getArgument(1);
+            rotation.apply(existing);
+            return Optional.of(existing);
+        });
+    }
+
+    private TokenRequest createRefreshRequest() {
+        TokenRequest request = new TokenRequest();
+        request.setGrant_type("refresh_token");
+        request.setRefresh_token("old-refresh-token");
+        return request;
+    }
+
+    private Usuario createTestUser(int tokenEpoch) {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setLogin("testuser");
+        usuario.setSenha("hash");
+        usuario.setAtivo(true);
+        usuario.setTokenEpoch(tokenEpoch);
+        usuario.setRoles(List.of());
+        return usuario;
+    }
+}
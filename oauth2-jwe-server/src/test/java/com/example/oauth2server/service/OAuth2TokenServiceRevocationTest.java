@@ -0,0 +1,144 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.service.AccessTokenWriter;
+import com.example.oauth2.service.ClientRegistry;
+import com.example.oauth2.service.ClientTokenCache;
+import com.example.oauth2.service.JweTokenService;
+import com.example.oauth2.service.OAuth2TokenService;
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.RefreshGraceCache;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenEpochIndex;
+import com.example.oauth2.service.UserCache;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OAuth2TokenServiceRevocationTest {
+
+    @Mock
+    private JweTokenService jweTokenService;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    @Mock
+    private AccessTokenWriter accessTokenWriter;
+
+    @Mock
+    private PasswordHashingBulkhead passwordHashingBulkhead;
+
+    @Mock
+    private VerifiedCredentialCache credentialCache;
+
+    @Mock
+    private RandomIdService randomIdService;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private TokenEpochIndex tokenEpochIndex;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private RefreshGraceCache refreshGraceCache;
+
+    @Mock
+    private ClientRegistry clientRegistry;
+
+    @Mock
+    private ClientTokenCache clientTokenCache;
+
+    private OAuth2TokenService oauth2TokenService;
+
+    @BeforeEach
+    void setUp() {
+        oauth2TokenService = new OAuth2TokenService(jweTokenService, usuarioRepository, accessTokenRepository,
+                accessTokenWriter, passwordHashingBulkhead, credentialCache, randomIdService, revocationIndex,
+                tokenEpochIndex, userCache, refreshGraceCache, clientRegistry, clientTokenCache, false, 10000, 500);
+    }
+
+    @Test
+    void revokeToken_ShouldMarkTheTokenRevoked_WithoutClearingTheGraceCache() {
+        // Given
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        when(accessTokenRepository.revokeToken("token-id")).thenReturn(Optional.of(expiresAt));
+
+        // When
+        oauth2TokenService.revokeToken("token-id");
+
+        // Then
+        verify(accessTokenWriter).flush();
+        verify(revocationIndex).markRevoked("token-id", expiresAt);
+        verify(revocationIndex, never()).refresh();
+        verifyNoInteractions(refreshGraceCache);
+    }
+
+    @Test
+    void revokeToken_ShouldNotMarkAnything_WhenNoLiveTokenWasRevoked() {
+        // Given
+        when(accessTokenRepository.revokeToken("token-id")).thenReturn(Optional.empty());
+
+        // When
+        oauth2TokenService.revokeToken("token-id");
+
+        // Then
+        verify(revocationIndex, never()).markRevoked(any(), any());
+    }
+
+    @Test
+    void revokeToken_ShouldLeaveTheClientTokenCache_ToTheRevocationIndex() {
+        // Given
+        when(accessTokenRepository.revokeToken("token-id")).thenReturn(Optional.of(LocalDateTime.now().plusHours(1)));
+
+        // When
+        oauth2TokenService.revokeToken("token-id");
+
+        // Then
+        verifyNoInteractions(clientTokenCache);
+    }
+
+    @Test
+    void revokeAllUserTokens_ShouldRecordTheNewEpoch_WithoutClearingTheGraceCache() {
+        // Given
+        when(usuarioRepository.bumpTokenEpoch(1L)).thenReturn(3);
+
+        // When
+        oauth2TokenService.revokeAllUserTokens(1L);
+
+        // Then
+        verify(tokenEpochIndex).recordEpoch(1L, 3);
+        verifyNoInteractions(refreshGraceCache);
+    }
+
+    @Test
+    void revokeAllUserTokens_ShouldDoNothingMore_ForAnUnknownUser() {
+        // Given
+        when(usuarioRepository.bumpTokenEpoch(99L)).thenReturn(0);
+
+        // When
+        oauth2TokenService.revokeAllUserTokens(99L);
+
+        // Then
+        verifyNoInteractions(tokenEpochIndex);
+    }
+}
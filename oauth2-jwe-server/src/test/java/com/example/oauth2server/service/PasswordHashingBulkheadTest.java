@@ -0,0 +1,129 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.PasswordHashingBulkhead;
+import com.example.oauth2.service.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PasswordHashingBulkheadTest {
+
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingBulkhead bulkhead;
+
+    private PasswordHashingBulkhead createBulkhead(int queueCapacity, long queueTimeoutMs) {
+        return createBulkhead(queueCapacity, queueTimeoutMs, 60_000L);
+    }
+
+    private PasswordHashingBulkhead createBulkhead(int queueCapacity, long queueTimeoutMs, long hashTimeoutMs) {
+        PasswordHashingBulkhead hashingBulkhead = new PasswordHashingBulkhead(1, queueCapacity, queueTimeoutMs,
+                hashTimeoutMs, 2L, passwordEncoder, meterRegistry);
+        hashingBulkhead.init();
+        return hashingBulkhead;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    void matches_ShouldDelegateToEncoder_OnHashingThread() {
+        // Given
+        bulkhead = createBulkhead(10, 1000);
+        when(passwordEncoder.matches("secret", "hash")).thenAnswer(invocation ->
+                Thread.currentThread().getName().startsWith("password-hashing-"));
+
+        // When & Then
+        assertThat(bulkhead.matches("secret", "hash")).isTrue();
+        assertThat(meterRegistry.timer("oauth2.password.hashing.wait").count()).isEqualTo(1);
+    }
+
+    @Test
+    void matches_ShouldShed_WhenQueueIsFull() throws Exception {
+        // Given
+        bulkhead = createBulkhead(1, 60_000);
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches(anyString(), anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            release.await();
+            return true;
+        });
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> bulkhead.matches("a", "hash"));
+        assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> bulkhead.matches("b", "hash"));
+        await(() -> bulkhead.getQueueDepth() == 1);
+
+        // When & Then
+        assertThatThrownBy(() -> bulkhead.matches("c", "hash"))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessageContaining("full")
+                .extracting("retryAfterSeconds").isEqualTo(2L);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.counter("oauth2.password.hashing.shed").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void matches_ShouldShed_WithoutHashing_WhenQueueTimeoutIsExceeded() throws Exception {
+        // Given
+        bulkhead = createBulkhead(10, 50);
+        CountDownLatch hashing = new CountDownLatch(1);
+        when(passwordEncoder.matches("slow", "hash")).thenAnswer(invocation -> {
+            hashing.countDown();
+            Thread.sleep(200);
+            return true;
+        });
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> bulkhead.matches("slow", "hash"));
+        assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When & Then
+        assertThatThrownBy(() -> bulkhead.matches("late", "hash"))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessageContaining("timeout");
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        verify(passwordEncoder, never()).matches("late", "hash");
+    }
+
+    @Test
+    void matches_ShouldStopWaiting_WhenAStartedHashOverrunsItsTimeout() throws Exception {
+        // Given
+        bulkhead = createBulkhead(10, 50, 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches("stuck", "hash")).thenAnswer(invocation -> release.await(5, TimeUnit.SECONDS));
+
+        // When & Then
+        try {
+            assertThatThrownBy(() -> bulkhead.matches("stuck", "hash"))
+                    .isInstanceOf(ServiceOverloadedException.class)
+                    .hasMessageContaining("in time")
+                    .extracting("retryAfterSeconds").isEqualTo(2L);
+            assertThat(meterRegistry.counter("oauth2.password.hashing.shed").count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.RandomIdService;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RandomIdServiceTest {
+
+    private final RandomIdService randomIdService = new RandomIdService();
+
+    @Test
+    void ids_ShouldBeBase64UrlOfExpectedLength() {
+        // When
+        String id = randomIdService.newId();
+        String token = randomIdService.newToken();
+        String traceId = randomIdService.newTraceId();
+
+        // Then
+        assertThat(id).hasSize(22).matches("[A-Za-z0-9_-]+");
+        assertThat(token).hasSize(43).matches("[A-Za-z0-9_-]+");
+        assertThat(traceId).hasSize(8).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void ids_ShouldBeUniqueAcrossThreadsAndBlockRefills() {
+        // Given
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        // When
+        IntStream.range(0, 20_000).parallel().forEach(i -> ids.add(randomIdService.newId()));
+
+        // Then
+        assertThat(ids).hasSize(20_000);
+    }
+
+    @Test
+    void secureRandom_ShouldFillRequestsLargerThanOneBlock() {
+        // Given
+        SecureRandom secureRandom = randomIdService.secureRandom();
+        byte[] first = new byte[2048];
+        byte[] second = new byte[2048];
+
+        // When
+        secureRandom.nextBytes(first);
+        secureRandom.nextBytes(second);
+
+        // Then
+        assertThat(first).isNotEqualTo(second);
+        assertThat(IntStream.range(1024, 2048).anyMatch(i -> first[i] != 0)).isTrue();
+    }
+}
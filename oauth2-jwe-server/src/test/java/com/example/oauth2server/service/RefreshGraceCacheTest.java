@@ -0,0 +1,155 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.dto.TokenResponse;
+import com.example.oauth2.service.RefreshGraceCache;
+import com.example.oauth2.service.RefreshGraceCache.RotatedToken;
+import com.example.oauth2.service.RevocationIndex;
+import com.example.oauth2.service.TokenEpochIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RefreshGraceCacheTest {
+
+    private RefreshGraceCache cache;
+    private RevocationIndex revocationIndex;
+    private TokenEpochIndex tokenEpochIndex;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        revocationIndex = mock(RevocationIndex.class);
+        tokenEpochIndex = mock(TokenEpochIndex.class);
+        when(revocationIndex.isEnabled()).thenReturn(true);
+        when(tokenEpochIndex.isEnabled()).thenReturn(true);
+        cache = new RefreshGraceCache(true, 60_000L, 100, 5_000L, revocationIndex, tokenEpochIndex, meterRegistry);
+        cache.init();
+    }
+
+    private static RotatedToken rotated(String accessToken) {
+        return rotated(accessToken, 1L, 0);
+    }
+
+    private static RotatedToken rotated(String tokenId, Long userId, int tokenEpoch) {
+        return new RotatedToken(tokenId, userId, tokenEpoch,
+                new TokenResponse(tokenId, "Bearer", 3600L, "new-refresh", "read"));
+    }
+
+    @Test
+    void rotateOnce_ShouldReplayResponse_ForDuplicateWithinWindow() {
+        // Given
+        AtomicInteger rotations = new AtomicInteger();
+
+        // When
+        TokenResponse first = cache.rotateOnce("refresh-1", () -> rotated("access-" + rotations.incrementAndGet()));
+        TokenResponse duplicate = cache.rotateOnce("refresh-1", () -> rotated("access-" + rotations.incrementAndGet()));
+
+        // Then
+        assertThat(duplicate).isSameAs(first);
+        assertThat(rotations.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("oauth2.refresh.grace.replays").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void rotateOnce_ShouldNotRemember_FailedRotation() {
+        // When
+        assertThatThrownBy(() -> cache.rotateOnce("refresh-1", () -> {
+            throw new IllegalArgumentException("Invalid refresh token");
+        })).isInstanceOf(IllegalArgumentException.class);
+        TokenResponse retry = cache.rotateOnce("refresh-1", () -> rotated("access-1"));
+
+        // Then
+        assertThat(retry.getAccessToken()).isEqualTo("access-1");
+    }
+
+    @Test
+    void rotateOnce_ShouldNotRemember_RotationThatThrowsAnError() {
+        // When
+        assertThatThrownBy(() -> cache.rotateOnce("refresh-1", () -> {
+            throw new AssertionError("boom");
+        })).isInstanceOf(AssertionError.class);
+        TokenResponse retry = cache.rotateOnce("refresh-1", () -> rotated("access-1"));
+
+        // Then
+        assertThat(retry.getAccessToken()).isEqualTo("access-1");
+        assertThat(meterRegistry.counter("oauth2.refresh.grace.replays").count()).isZero();
+    }
+
+    @Test
+    void rotateOnce_ShouldMakeConcurrentDuplicateWaitForRotationInFlight() throws Exception {
+        // Given
+        CountDownLatch rotationStarted = new CountDownLatch(1);
+        CountDownLatch releaseRotation = new CountDownLatch(1);
+        CompletableFuture<TokenResponse> leader = CompletableFuture.supplyAsync(() ->
+                cache.rotateOnce("refresh-1", () -> {
+                    rotationStarted.countDown();
+                    await(releaseRotation);
+                    return rotated("access-1");
+                }));
+        assertThat(rotationStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        CompletableFuture<TokenResponse> duplicate = CompletableFuture.supplyAsync(() ->
+                cache.rotateOnce("refresh-1", () -> rotated("access-2")));
+        releaseRotation.countDown();
+
+        // Then
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isSameAs(leader.get(5, TimeUnit.SECONDS));
+        assertThat(duplicate.get().getAccessToken()).isEqualTo("access-1");
+    }
+
+    @Test
+    void rotateOnce_ShouldRefuseDuplicate_WhenTheRotatedTokenWasRevoked() {
+        // Given
+        cache.rotateOnce("refresh-1", () -> rotated("access-1", 1L, 0));
+        when(revocationIndex.isRevoked("access-1")).thenReturn(true);
+
+        // When & Then
+        assertThatThrownBy(() -> cache.rotateOnce("refresh-1", () -> rotated("access-2", 1L, 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Refresh token has been revoked");
+        assertThat(meterRegistry.counter("oauth2.refresh.grace.replays").count()).isZero();
+    }
+
+    @Test
+    void rotateOnce_ShouldRefuseDuplicate_AfterTheUserLoggedOut() {
+        // Given
+        cache.rotateOnce("refresh-1", () -> rotated("access-1", 1L, 0));
+        when(tokenEpochIndex.currentEpoch(1L)).thenReturn(1);
+
+        // When & Then
+        assertThatThrownBy(() -> cache.rotateOnce("refresh-1", () -> rotated("access-2", 1L, 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Refresh token has been revoked");
+    }
+
+    @Test
+    void rotateOnce_ShouldStillReplay_ForUsersNotLoggedOut() {
+        // Given
+        TokenResponse first = cache.rotateOnce("refresh-2", () -> rotated("access-2", 2L, 0));
+        when(tokenEpochIndex.currentEpoch(1L)).thenReturn(1);
+
+        // When
+        TokenResponse duplicate = cache.rotateOnce("refresh-2", () -> rotated("access-3", 2L, 0));
+
+        // Then
+        assertThat(duplicate).isSameAs(first);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.repository.AccessTokenRepository;
+import com.example.oauth2.repository.AccessTokenRepository.RevokedToken;
+import com.example.oauth2.service.RevocationIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationIndexTest {
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    private RevocationIndex index;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new RevocationIndex(true, 5000L, accessTokenRepository, meterRegistry);
+    }
+
+    @Test
+    void init_ShouldLoadAllRevokedTokens_ThenPollFromWatermarkMinusOverlap() {
+        // Given
+        LocalDateTime revokedAt = LocalDateTime.of(2026, 1, 1, 12, 0, 0);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        when(accessTokenRepository.findRevokedSince(isNull()))
+                .thenReturn(List.of(new RevokedToken("token-1", expiresAt, revokedAt)));
+        when(accessTokenRepository.findRevokedSince(revokedAt.minusSeconds(5)))
+                .thenReturn(List.of(new RevokedToken("token-2", expiresAt, revokedAt.plusSeconds(1))));
+
+        // When
+        index.init();
+        boolean firstAfterLoad = index.isRevoked("token-1");
+        boolean secondBeforePoll = index.isRevoked("token-2");
+        index.refresh();
+
+        // Then
+        assertThat(firstAfterLoad).isTrue();
+        assertThat(secondBeforePoll).isFalse();
+        assertThat(index.isRevoked("token-2")).isTrue();
+        assertThat(index.isRevoked("other")).isFalse();
+        assertThat(meterRegistry.get("jwe.revocation.index.size").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("jwe.revocation.index.staleness").gauge().value()).isLessThan(5.0);
+    }
+
+    @Test
+    void refresh_ShouldDropEntriesOnlyOnceTheTokenHasExpired() {
+        // Given
+        index.init();
+        index.markRevoked("expired", LocalDateTime.now().minusSeconds(1));
+        index.markRevoked("live", LocalDateTime.now().plusHours(1));
+
+        // When
+        index.refresh();
+
+        // Then
+        assertThat(index.isRevoked("expired")).isFalse();
+        assertThat(index.isRevoked("live")).isTrue();
+    }
+
+    @Test
+    void refresh_ShouldKeepTheIndex_WhenTheDatabaseIsUnavailable() {
+        // Given
+        index.init();
+        index.markRevoked("token-1", LocalDateTime.now().plusHours(1));
+        when(accessTokenRepository.findRevokedSince(any()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When
+        index.refresh();
+
+        // Then
+        assertThat(index.isRevoked("token-1")).isTrue();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.security.TokenDigest;
+import com.example.oauth2.service.TokenClaimsCache;
+import com.nimbusds.jwt.JWTClaimsSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TokenClaimsCacheTest {
+
+    private TokenClaimsCache cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TokenClaimsCache(true, 3, meterRegistry);
+        cache.init();
+    }
+
+    private JWTClaimsSet claimsExpiringIn(long millis) {
+        return new JWTClaimsSet.Builder()
+                .subject("testuser")
+                .expirationTime(new Date(System.currentTimeMillis() + millis))
+                .build();
+    }
+
+    @Test
+    void get_ShouldReturnCachedClaims_AndRecordHitsAndMisses() {
+        // Given
+        TokenDigest digest = TokenDigest.of("token-1");
+        JWTClaimsSet claims = claimsExpiringIn(60_000);
+
+        // When
+        JWTClaimsSet beforePut = cache.get(digest);
+        cache.put(digest, claims);
+        JWTClaimsSet afterPut = cache.get(TokenDigest.of("token-1"));
+
+        // Then
+        assertThat(beforePut).isNull();
+        assertThat(afterPut).isSameAs(claims);
+        assertThat(meterRegistry.counter("jwe.claims.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("jwe.claims.cache.requests", "result", "miss").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void put_ShouldIgnoreExpiredClaims() {
+        // Given
+        TokenDigest digest = TokenDigest.of("expired-token");
+
+        // When
+        cache.put(digest, claimsExpiringIn(-1_000));
+
+        // Then
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(digest)).isNull();
+    }
+
+    @Test
+    void put_ShouldEvict_WhenMaxSizeIsReached() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            cache.put(TokenDigest.of("token-" + i), claimsExpiringIn(60_000 + i));
+        }
+
+        // When
+        cache.put(TokenDigest.of("token-3"), claimsExpiringIn(60_000));
+
+        // Then
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(meterRegistry.counter("jwe.claims.cache.evictions").count()).isEqualTo(1.0);
+    }
+}
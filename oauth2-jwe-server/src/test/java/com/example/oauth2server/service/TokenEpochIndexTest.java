@@ -0,0 +1,122 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.repository.UsuarioRepository;
+import com.example.oauth2.repository.UsuarioRepository.TokenEpoch;
+import com.example.oauth2.service.TokenEpochIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenEpochIndexTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    private TokenEpochIndex index;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new TokenEpochIndex(true, 5000L, 3_600_000L, usuarioRepository, meterRegistry);
+    }
+
+    @Test
+    void init_ShouldLoadAllEpochs_ThenPollFromWatermarkMinusOverlap() {
+        // Given
+        LocalDateTime changedAt = LocalDateTime.now().withNano(0);
+        when(usuarioRepository.findTokenEpochsChangedSince(isNull()))
+                .thenReturn(List.of(new TokenEpoch(7L, 2, changedAt)));
+        when(usuarioRepository.findTokenEpochsChangedSince(changedAt.minusSeconds(5)))
+                .thenReturn(List.of(new TokenEpoch(8L, 1, changedAt.plusSeconds(1))));
+
+        // When
+        index.init();
+        int afterLoad = index.currentEpoch(8L);
+        index.refresh();
+
+        // Then
+        assertThat(index.currentEpoch(7L)).isEqualTo(2);
+        assertThat(afterLoad).isZero();
+        assertThat(index.currentEpoch(8L)).isEqualTo(1);
+        assertThat(index.currentEpoch(9L)).isZero();
+        assertThat(meterRegistry.get("jwe.token.epoch.index.size").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("jwe.token.epoch.index.staleness").gauge().value()).isLessThan(5.0);
+    }
+
+    @Test
+    void recordEpoch_ShouldOnlyMoveForward() {
+        // Given
+        index.init();
+        index.recordEpoch(7L, 3);
+
+        // When
+        index.recordEpoch(7L, 2);
+        index.recordEpoch(8L, 0);
+
+        // Then
+        assertThat(index.currentEpoch(7L)).isEqualTo(3);
+        assertThat(index.currentEpoch(8L)).isZero();
+        assertThat(meterRegistry.get("jwe.token.epoch.index.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void refresh_ShouldKeepTheLargerEpoch_WhenThePollLagsALocalLogout() {
+        // Given
+        when(usuarioRepository.findTokenEpochsChangedSince(any()))
+                .thenReturn(List.of(new TokenEpoch(7L, 1, LocalDateTime.now())));
+        index.init();
+        index.recordEpoch(7L, 2);
+
+        // When
+        index.refresh();
+
+        // Then
+        assertThat(index.currentEpoch(7L)).isEqualTo(2);
+    }
+
+    @Test
+    void refresh_ShouldDropEpochs_OnceTheRetentionHasPassed() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        when(usuarioRepository.findTokenEpochsChangedSince(any())).thenReturn(List.of(
+                new TokenEpoch(7L, 2, now.minusHours(2)),
+                new TokenEpoch(8L, 1, now.minusMinutes(10))));
+
+        // When
+        index.init();
+
+        // Then
+        assertThat(index.currentEpoch(7L)).isZero();
+        assertThat(index.currentEpoch(8L)).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_ShouldKeepTheIndex_WhenTheDatabaseIsUnavailable() {
+        // Given
+        index.init();
+        index.recordEpoch(7L, 1);
+        when(usuarioRepository.findTokenEpochsChangedSince(any()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When
+        index.refresh();
+
+        // Then
+        assertThat(index.currentEpoch(7L)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.model.Usuario;
+import com.example.oauth2.repository.UsuarioChangedEvent;
+import com.example.oauth2.service.UserCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class UserCacheTest {
+
+    private UserCache cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserCache(true, 2, 60_000L, meterRegistry);
+        cache.init();
+    }
+
+    private static Usuario user(long id) {
+        Usuario user = new Usuario();
+        user.setId(id);
+        user.setLogin("user" + id);
+        return user;
+    }
+
+    @Test
+    void get_ShouldReturnCachedUser_UntilInvalidated() {
+        // Given
+        Usuario user = user(1);
+        cache.put(user, cache.generation());
+
+        // When
+        Usuario cached = cache.get(1L);
+        cache.invalidate(1L);
+        Usuario afterInvalidate = cache.get(1L);
+
+        // Then
+        assertThat(cached).isSameAs(user);
+        assertThat(afterInvalidate).isNull();
+        assertThat(meterRegistry.counter("oauth2.user.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("oauth2.user.cache.requests", "result", "miss").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void onUsuarioChanged_ShouldDropTheChangedUserOnly() {
+        // Given
+        cache.put(user(1), cache.generation());
+        cache.put(user(2), cache.generation());
+
+        // When
+        cache.onUsuarioChanged(new UsuarioChangedEvent(1L, null));
+
+        // Then
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isNotNull();
+    }
+
+    @Test
+    void put_ShouldDiscardUserLoadedBeforeAnInvalidation() {
+        // Given
+        long generation = cache.generation();
+        Usuario staleCopy = user(1);
+
+        // When: the user is written while the stale copy is being loaded
+        cache.invalidate(1L);
+        cache.put(staleCopy, generation);
+
+        // Then
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void put_ShouldEvict_WhenFull() {
+        // When
+        cache.put(user(1), cache.generation());
+        cache.put(user(2), cache.generation());
+        cache.put(user(3), cache.generation());
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(3L)).isNotNull();
+    }
+}
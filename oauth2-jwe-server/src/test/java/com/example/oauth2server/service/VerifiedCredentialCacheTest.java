@@ -0,0 +1,112 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.repository.UsuarioChangedEvent;
+import com.example.oauth2.service.RandomIdService;
+import com.example.oauth2.service.VerifiedCredentialCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VerifiedCredentialCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedCredentialCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = createCache(true, 2, 60_000L);
+    }
+
+    private VerifiedCredentialCache createCache(boolean enabled, int maxSize, long ttlMs) {
+        VerifiedCredentialCache credentialCache = new VerifiedCredentialCache(enabled, true, maxSize, ttlMs,
+                new RandomIdService(), meterRegistry);
+        credentialCache.init();
+        return credentialCache;
+    }
+
+    @Test
+    void isVerified_ShouldHit_OnlyForSamePasswordAndStoredHash() {
+        // Given
+        cache.recordVerified("batch", "s3cret", "$2a$10$hash");
+
+        // When & Then
+        assertThat(cache.isVerified("batch", "s3cret", "$2a$10$hash")).isTrue();
+        assertThat(cache.isVerified("batch", "wrong", "$2a$10$hash")).isFalse();
+        assertThat(cache.isVerified("batch", "s3cret", "$2a$10$changed")).isFalse();
+        assertThat(cache.isVerified("other", "s3cret", "$2a$10$hash")).isFalse();
+        assertThat(meterRegistry.counter("oauth2.credential.cache.hits", "kind", "user").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("oauth2.credential.cache.misses", "kind", "user").count()).isEqualTo(3.0);
+    }
+
+    @Test
+    void isVerified_ShouldMiss_AfterInvalidateOrExpiry() {
+        // Given
+        VerifiedCredentialCache expiring = createCache(true, 10, 0L);
+        expiring.recordVerified("batch", "s3cret", "hash");
+        cache.recordVerified("batch", "s3cret", "hash");
+
+        // When
+        cache.invalidate("batch");
+
+        // Then
+        assertThat(cache.isVerified("batch", "s3cret", "hash")).isFalse();
+        assertThat(expiring.isVerified("batch", "s3cret", "hash")).isFalse();
+        assertThat(expiring.size()).isZero();
+    }
+
+    @Test
+    void onUsuarioChanged_ShouldDropTheEntryOfTheChangedLogin() {
+        // Given
+        cache.recordVerified("batch", "s3cret", "hash");
+        cache.recordVerified("other", "s3cret", "hash");
+
+        // When
+        cache.onUsuarioChanged(new UsuarioChangedEvent(1L, "batch"));
+        cache.onUsuarioChanged(new UsuarioChangedEvent(2L, null));
+
+        // Then
+        assertThat(cache.isVerified("batch", "s3cret", "hash")).isFalse();
+        assertThat(cache.isVerified("other", "s3cret", "hash")).isTrue();
+    }
+
+    @Test
+    void recordVerified_ShouldStayBounded_AndDoNothingWhenDisabled() {
+        // Given
+        VerifiedCredentialCache disabled = createCache(false, 10, 60_000L);
+
+        // When
+        cache.recordVerified("a", "p", "h");
+        cache.recordVerified("b", "p", "h");
+        cache.recordVerified("c", "p", "h");
+        disabled.recordVerified("a", "p", "h");
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.isVerified("c", "p", "h")).isTrue();
+        assertThat(disabled.size()).isZero();
+        assertThat(disabled.isVerified("a", "p", "h")).isFalse();
+    }
+
+    @Test
+    void metrics_ShouldBeReportedPerKind_AndInvalidateShouldLeaveClientEntries() {
+        // Given
+        cache.recordVerified("batch", "s3cret", "hash");
+        cache.recordClientVerified("batch", "s3cret", "hash");
+
+        // When
+        cache.isClientVerified("batch", "s3cret", "hash");
+        cache.invalidate("batch");
+        cache.isVerified("batch", "s3cret", "hash");
+
+        // Then
+        assertThat(cache.isClientVerified("batch", "s3cret", "hash")).isTrue();
+        assertThat(meterRegistry.counter("oauth2.credential.cache.hits", "kind", "client").count()).isEqualTo(2.0);
+        assertThat(meterRegistry.counter("oauth2.credential.cache.hits", "kind", "user").count()).isZero();
+        assertThat(meterRegistry.counter("oauth2.credential.cache.misses", "kind", "user").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("oauth2.credential.cache.size").tag("kind", "user").gauge().value()).isZero();
+        assertThat(meterRegistry.get("oauth2.credential.cache.size").tag("kind", "client").gauge().value()).isEqualTo(1.0);
+    }
+}
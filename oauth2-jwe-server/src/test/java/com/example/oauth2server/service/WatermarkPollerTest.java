@@ -0,0 +1,61 @@
+package com.example.oauth2server.service;
+
+import com.example.oauth2.service.WatermarkPoller;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WatermarkPollerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0, 0);
+
+    @Test
+    void poll_ShouldStartFromNothing_ThenFromTheHighestTimestampMinusOverlap() {
+        // Given
+        WatermarkPoller<LocalDateTime> poller = new WatermarkPoller<>("test", 5000, row -> row);
+        List<LocalDateTime> queried = new ArrayList<>();
+        List<LocalDateTime> applied = new ArrayList<>();
+
+        // When
+        poller.poll(since -> {
+            queried.add(since);
+            return List.of(T0.plusSeconds(10), T0);
+        }, applied::addAll);
+        poller.poll(since -> {
+            queried.add(since);
+            return List.of();
+        }, applied::addAll);
+
+        // Then
+        assertThat(queried).containsExactly(null, T0.plusSeconds(5));
+        assertThat(applied).containsExactly(T0.plusSeconds(10), T0);
+        assertThat(poller.stalenessSeconds()).isLessThan(5.0);
+    }
+
+    @Test
+    void poll_ShouldKeepTheWatermark_WhenTheDatabaseIsUnavailable() {
+        // Given
+        WatermarkPoller<LocalDateTime> poller = new WatermarkPoller<>("test", 0, row -> row);
+        List<LocalDateTime> queried = new ArrayList<>();
+        assertThat(poller.stalenessSeconds()).isNaN();
+        poller.poll(since -> List.of(T0), rows -> { });
+
+        // When
+        boolean failed = poller.poll(since -> {
+            throw new DataAccessResourceFailureException("down");
+        }, rows -> { });
+        poller.poll(since -> {
+            queried.add(since);
+            return List.of();
+        }, rows -> { });
+
+        // Then
+        assertThat(failed).isFalse();
+        assertThat(queried).containsExactly(T0);
+    }
+}